@@ -0,0 +1,55 @@
+package org.greenblitz.motion.benchmarks;
+
+import org.greenblitz.motion.app.AdaptivePurePursuitController;
+import org.greenblitz.motion.base.Position;
+import org.greenblitz.motion.pathing.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One controller iteration, with the robot moving along the path a bit every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AdaptivePurePursuitBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int pathLength;
+
+    private AdaptivePurePursuitController controller;
+    private Position[] robotLocations;
+    private int locationIndex;
+
+    @Setup
+    public void setup() {
+        List<Position> points = new ArrayList<>(pathLength);
+        for (int i = 0; i < pathLength; i++)
+            points.add(new Position(Math.sin(i * 0.1), i * 0.1, 0));
+        controller = new AdaptivePurePursuitController(new Path<>(points), 0.5, 0.6, 0.05, false,
+                0.2, 1, 1);
+        robotLocations = new Position[64];
+        double length = (pathLength - 1) * 0.1;
+        for (int i = 0; i < robotLocations.length; i++) {
+            double y = length * i / robotLocations.length;
+            robotLocations[i] = new Position(Math.sin(y) + 0.05, y, 0.1);
+        }
+    }
+
+    @Benchmark
+    public double[] iteration() {
+        locationIndex = (locationIndex + 1) & (robotLocations.length - 1);
+        return controller.iteration(robotLocations[locationIndex]);
+    }
+
+}
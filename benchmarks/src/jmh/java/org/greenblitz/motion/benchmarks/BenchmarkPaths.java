@@ -0,0 +1,41 @@
+package org.greenblitz.motion.benchmarks;
+
+import org.greenblitz.motion.base.State;
+import org.greenblitz.motion.profiling.ActuatorLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic paths for the benchmarks, so results are comparable between runs.
+ */
+final class BenchmarkPaths {
+
+    private BenchmarkPaths() {
+    }
+
+    /**
+     * @param pairs the amount of waypoint pairs (splines) in the path
+     * @return a winding path of pairs + 1 waypoints, about 2 meters apart
+     */
+    static List<State> chassisPath(int pairs) {
+        List<State> ret = new ArrayList<>(pairs + 1);
+        for (int i = 0; i <= pairs; i++) {
+            double angle = i == 0 || i == pairs ? 0 : (i % 2 == 0 ? 0.4 : -0.4);
+            ret.add(new State(i % 2 == 0 ? 0 : 1, 2 * i, angle, i == 0 || i == pairs ? 0 : 1.5, 0));
+        }
+        return ret;
+    }
+
+    /**
+     * @param count the amount of waypoints
+     * @return waypoints 1 meter apart, stopping at every fourth one
+     */
+    static List<ActuatorLocation> actuatorPath(int count) {
+        List<ActuatorLocation> ret = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            ret.add(new ActuatorLocation(i, i % 4 == 0 || i == count - 1 ? 0 : 1));
+        return ret;
+    }
+
+}
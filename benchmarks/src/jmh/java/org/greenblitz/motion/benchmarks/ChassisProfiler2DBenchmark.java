@@ -0,0 +1,62 @@
+package org.greenblitz.motion.benchmarks;
+
+import org.greenblitz.motion.profiling.ChassisProfiler2D;
+import org.greenblitz.motion.profiling.GeometryCache;
+import org.greenblitz.motion.profiling.MotionProfile2D;
+import org.greenblitz.motion.profiling.ProfilingData;
+import org.greenblitz.motion.profiling.ProfilingOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChassisProfiler2DBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int pathLength;
+
+    @Param({"0.01", "0.001"})
+    public double jump;
+
+    private List<org.greenblitz.motion.base.State> path;
+    private ProfilingOptions geometryCached;
+
+    @Setup
+    public void setup() {
+        path = BenchmarkPaths.chassisPath(pathLength);
+        geometryCached = ProfilingOptions.DEFAULT.setGeometryCache(new GeometryCache(64));
+    }
+
+    @Benchmark
+    public MotionProfile2D generateProfile() {
+        return ChassisProfiler2D.generateProfile(path, jump, 0, 0, 3.5, 4, 2.5, 5, 0, 0.8,
+                ChassisProfiler2D.SMOOTHING_TAIL_SIZE);
+    }
+
+    /**
+     * The same path with other limits, as when sweeping ProfilingData, with the geometry cached.
+     */
+    @Benchmark
+    public MotionProfile2D generateProfileGeometryCached() {
+        return ChassisProfiler2D.generateProfile(path, jump, 0, 0, new ProfilingData(3.5, 2.5, 4, 5), 0, 0.8,
+                ChassisProfiler2D.SMOOTHING_TAIL_SIZE, 0, Collections.emptyList(), geometryCached);
+    }
+
+    @Benchmark
+    public MotionProfile2D generateProfileByWheel() {
+        return ChassisProfiler2D.generateProfileByWheel(path, jump, 0, 0, 3.5, 2.5, 0.6, 0.8,
+                ChassisProfiler2D.SMOOTHING_TAIL_SIZE);
+    }
+
+}
@@ -0,0 +1,39 @@
+package org.greenblitz.motion.benchmarks;
+
+import org.greenblitz.motion.pid.FuzzyPID;
+import org.greenblitz.motion.pid.PIDObject;
+import org.greenblitz.motion.tolerance.AbsoluteTolerance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FuzzyPIDBenchmark {
+
+    private FuzzyPID controller;
+    private double current;
+
+    @Setup
+    public void setup() {
+        controller = new FuzzyPID(new PIDObject(0.5, 0.01, 0.1), new AbsoluteTolerance(0.001), 10, 20, 0.5, 0.5);
+        controller.configure(0, 10, -1, 1, 0);
+        current = 0;
+    }
+
+    @Benchmark
+    public double calculatePID() {
+        current += 0.01;
+        if (current > 20)
+            current = 0;
+        return controller.calculatePID(current);
+    }
+
+}
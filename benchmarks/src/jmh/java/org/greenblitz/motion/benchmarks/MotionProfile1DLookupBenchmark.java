@@ -0,0 +1,100 @@
+package org.greenblitz.motion.benchmarks;
+
+import org.greenblitz.motion.profiling.MotionProfile1D;
+import org.greenblitz.motion.profiling.Profiler1D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the segment lookups on big profiles. Every lookup is measured with sequential seeks, moving forward
+ * in time by a 20ms cycle the way followers use it, and with random seeks. The index returning variants are used so copying the segment isn't measured.
+ * <p>
+ * The bucketed lookup uses a separate profile with a time index, since quickGetSegment falls back to the
+ * index when there is one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MotionProfile1DLookupBenchmark {
+
+    private static final double CYCLE = 0.02;
+
+    @Param({"10000", "100000"})
+    public int segmentCount;
+
+    private MotionProfile1D profile;
+    private MotionProfile1D indexedProfile;
+    private double[] randomTimes;
+    private int randomIndex;
+    private double time;
+
+    @Setup
+    public void setup() {
+        profile = generateProfile();
+        indexedProfile = generateProfile();
+        indexedProfile.buildTimeIndex();
+        Random random = new Random(0);
+        randomTimes = new double[1024];
+        for (int i = 0; i < randomTimes.length; i++)
+            randomTimes[i] = random.nextDouble() * profile.getTEnd();
+        randomIndex = 0;
+        time = 0;
+    }
+
+    private MotionProfile1D generateProfile() {
+        // Profiler1D makes two segments per waypoint pair on this path
+        return Profiler1D.generateProfile(BenchmarkPaths.actuatorPath(segmentCount / 2 + 1), 2, 1.5, -1.5);
+    }
+
+    private double nextSequentialTime() {
+        time += CYCLE;
+        if (time > profile.getTEnd())
+            time = 0;
+        return time;
+    }
+
+    private double nextRandomTime() {
+        randomIndex = (randomIndex + 1) & (randomTimes.length - 1);
+        return randomTimes[randomIndex];
+    }
+
+    @Benchmark
+    public int quickGetSegmentSequential() {
+        return profile.quickGetSegmentIndex(nextSequentialTime());
+    }
+
+    @Benchmark
+    public int quickGetSegmentRandom() {
+        return profile.quickGetSegmentIndex(nextRandomTime());
+    }
+
+    @Benchmark
+    public int getSegmentRandomSequential() {
+        return profile.getSegmentIndexRandom(nextSequentialTime());
+    }
+
+    @Benchmark
+    public int getSegmentRandomRandom() {
+        return profile.getSegmentIndexRandom(nextRandomTime());
+    }
+
+    @Benchmark
+    public int bucketedSequential() {
+        return indexedProfile.getSegmentIndexBucketed(nextSequentialTime());
+    }
+
+    @Benchmark
+    public int bucketedRandom() {
+        return indexedProfile.getSegmentIndexBucketed(nextRandomTime());
+    }
+
+}
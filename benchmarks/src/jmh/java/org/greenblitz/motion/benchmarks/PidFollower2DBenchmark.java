@@ -0,0 +1,58 @@
+package org.greenblitz.motion.benchmarks;
+
+import org.greenblitz.motion.base.Vector2D;
+import org.greenblitz.motion.pid.PIDObject;
+import org.greenblitz.motion.profiling.ChassisProfiler2D;
+import org.greenblitz.motion.profiling.MotionProfile2D;
+import org.greenblitz.motion.profiling.followers.PidFollower2D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One follower cycle, moving forward in time by 20ms every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PidFollower2DBenchmark {
+
+    private static final double CYCLE = 0.02;
+
+    @Param({"1", "4", "16"})
+    public int pathLength;
+
+    @Param({"0.01", "0.001"})
+    public double jump;
+
+    private PidFollower2D follower;
+    private double tEnd;
+    private double time;
+
+    @Setup
+    public void setup() {
+        MotionProfile2D profile = ChassisProfiler2D.generateProfile(BenchmarkPaths.chassisPath(pathLength), jump,
+                0, 0, 3.5, 4, 2.5, 5, 0, 0.8, ChassisProfiler2D.SMOOTHING_TAIL_SIZE);
+        tEnd = profile.getTEnd();
+        follower = new PidFollower2D(0.3, 0.05, 0.3, 0.05, new PIDObject(0.1, 0, 0), 0.5, 0.3,
+                new PIDObject(0.1, 0, 0), 0.5, 0.6, profile);
+        follower.init();
+        time = 0;
+    }
+
+    @Benchmark
+    public Vector2D forceRun() {
+        time += CYCLE;
+        if (time >= tEnd)
+            time = 0;
+        return follower.forceRun(1, 1, 0.1, time);
+    }
+
+}
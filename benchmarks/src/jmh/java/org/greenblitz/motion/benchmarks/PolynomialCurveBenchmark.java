@@ -0,0 +1,74 @@
+package org.greenblitz.motion.benchmarks;
+
+import org.greenblitz.motion.base.Point;
+import org.greenblitz.motion.profiling.curve.spline.PolynomialCurve;
+import org.greenblitz.motion.profiling.curve.spline.QuinticSplineGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates the location and curvature of a quintic spline at many points, one by one (allocating and into a
+ * scratch array) and in a batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PolynomialCurveBenchmark {
+
+    @Param({"100", "1000"})
+    public int points;
+
+    private PolynomialCurve curve;
+    private double[] u, x, y, curvature;
+    private double[] scratch = new double[6];
+
+    @Setup
+    public void setup() {
+        List<org.greenblitz.motion.base.State> path = BenchmarkPaths.chassisPath(1);
+        curve = QuinticSplineGenerator.generateSpline(path.get(0), path.get(1), 2);
+        u = new double[points];
+        for (int i = 0; i < points; i++)
+            u[i] = (double) i / (points - 1);
+        x = new double[points];
+        y = new double[points];
+        curvature = new double[points];
+    }
+
+    @Benchmark
+    public double[] evaluateEach() {
+        for (int i = 0; i < points; i++) {
+            Point location = curve.getLocation(u[i]);
+            x[i] = location.getX();
+            y[i] = location.getY();
+            curvature[i] = curve.getCurvature(u[i]);
+        }
+        return curvature;
+    }
+
+    @Benchmark
+    public double[] evaluateEachInto() {
+        for (int i = 0; i < points; i++) {
+            curve.evaluate(u[i], scratch);
+            x[i] = scratch[0];
+            y[i] = scratch[1];
+            curvature[i] = PolynomialCurve.getCurvature(scratch[2], scratch[3], scratch[4], scratch[5]);
+        }
+        return curvature;
+    }
+
+    @Benchmark
+    public double[] evaluateBatch() {
+        curve.evaluate(u, x, y, curvature);
+        return curvature;
+    }
+
+}
@@ -0,0 +1,66 @@
+package org.greenblitz.motion.benchmarks;
+
+import org.greenblitz.motion.profiling.ActuatorLocation;
+import org.greenblitz.motion.profiling.MotionProfile1D;
+import org.greenblitz.motion.profiling.Profiler1D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Profiles many short waypoint lists, one by one with the list API and all at once with the batch API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class Profiler1DBatchBenchmark {
+
+    @Param({"1000"})
+    public int listCount;
+
+    private List<List<ActuatorLocation>> lists;
+    private double[] locations, velocities;
+    private int[] offsets;
+    private MotionProfile1D[] buffers;
+
+    @Setup
+    public void setup() {
+        lists = new ArrayList<>(listCount);
+        offsets = new int[listCount + 1];
+        for (int i = 0; i < listCount; i++) {
+            lists.add(BenchmarkPaths.actuatorPath(2 + i % 7));
+            offsets[i + 1] = offsets[i] + lists.get(i).size();
+        }
+        locations = new double[offsets[listCount]];
+        velocities = new double[offsets[listCount]];
+        for (int i = 0; i < listCount; i++) {
+            for (int j = 0; j < lists.get(i).size(); j++) {
+                locations[offsets[i] + j] = lists.get(i).get(j).getX();
+                velocities[offsets[i] + j] = lists.get(i).get(j).getV();
+            }
+        }
+        buffers = Profiler1D.generateProfiles(locations, velocities, offsets, 2, 1.5, -1.5, 0, null);
+    }
+
+    @Benchmark
+    public void generateOneByOne(Blackhole bh) {
+        for (List<ActuatorLocation> list : lists)
+            bh.consume(Profiler1D.generateProfile(list, 2, 1.5, -1.5));
+    }
+
+    @Benchmark
+    public MotionProfile1D[] generateBatch() {
+        return Profiler1D.generateProfiles(locations, velocities, offsets, 2, 1.5, -1.5, 0, buffers);
+    }
+
+}
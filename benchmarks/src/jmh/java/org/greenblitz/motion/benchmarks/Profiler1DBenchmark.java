@@ -0,0 +1,57 @@
+package org.greenblitz.motion.benchmarks;
+
+import org.greenblitz.motion.profiling.ActuatorLocation;
+import org.greenblitz.motion.profiling.MotionProfile1D;
+import org.greenblitz.motion.profiling.Profiler1D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class Profiler1DBenchmark {
+
+    @Param({"2", "10", "100"})
+    public int pathLength;
+
+    private List<ActuatorLocation> path;
+    private double[] locations, velocities;
+    private MotionProfile1D buffer;
+
+    @Setup
+    public void setup() {
+        path = BenchmarkPaths.actuatorPath(pathLength);
+        locations = new double[pathLength];
+        velocities = new double[pathLength];
+        for (int i = 0; i < pathLength; i++) {
+            locations[i] = path.get(i).getX();
+            velocities[i] = path.get(i).getV();
+        }
+        buffer = Profiler1D.generateProfile(path, 2, 1.5, -1.5, 0, null);
+    }
+
+    @Benchmark
+    public MotionProfile1D generateProfile() {
+        return Profiler1D.generateProfile(path, 2, 1.5, -1.5);
+    }
+
+    @Benchmark
+    public MotionProfile1D generateProfileReused() {
+        return Profiler1D.generateProfile(path, 2, 1.5, -1.5, 0, buffer);
+    }
+
+    @Benchmark
+    public MotionProfile1D generateProfileArrays() {
+        return Profiler1D.generateProfile(locations, velocities, 0, pathLength, 2, 1.5, -1.5, 0, buffer);
+    }
+
+}
@@ -74,6 +74,40 @@ public class Dataset {
         addAt(index + 1, wasAtIndex);
     }
 
+    /**
+     * @return The dimension of the function (output size + 1)
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @return The amount of known points
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * @return The smallest input of a known point
+     * @throws RuntimeException if the dataset is empty
+     */
+    public double getMinX() {
+        if (data.isEmpty())
+            throw new RuntimeException("The dataset is empty");
+        return data.get(0).getFirst();
+    }
+
+    /**
+     * @return The largest input of a known point
+     * @throws RuntimeException if the dataset is empty
+     */
+    public double getMaxX() {
+        if (data.isEmpty())
+            throw new RuntimeException("The dataset is empty");
+        return data.get(data.size() - 1).getFirst();
+    }
+
     /**
      *
      * @param x An input for the function
@@ -106,7 +140,9 @@ public class Dataset {
      */
     public double[] linearlyInterpolate(double x){
         TwoTuple<TwoTuple<Double, double[]>, TwoTuple<Double, double[]>> data = getAdjesent(x);
-        double weight = (x - data.getFirst().getFirst()) / (data.getSecond().getFirst() - data.getFirst().getFirst());
+        // x is exactly a known point, so both adjacent points are the same one
+        double weight = data.getFirst() == data.getSecond() ? 0 :
+                (x - data.getFirst().getFirst()) / (data.getSecond().getFirst() - data.getFirst().getFirst());
         double[] ret = new double[dimension];
         for (int i = 0; i < dimension - 1; i++){
             ret[i] = data.getFirst().getSecond()[i] +
@@ -4,12 +4,42 @@ package org.greenblitz.motion.profiling;
 /**
  * A function the approximates the function Am(v). which is the function of maximum possible acceleration by
  * current velocity.
+ * <p>
+ * Interpolators must not keep any state, so the same one can be used by many profiles generated at the same time.
+ * To use measured data, see TabulatedAccelerationInterpolator.
  *
  * @author Alexey
  */
 @FunctionalInterface
 public interface AccelerationInterpolator {
 
+    /**
+     * Linear isn't the best possible conversion, but it's pretty good. This is the one the velocity graphs use.
+     */
+    AccelerationInterpolator LINEAR =
+            (currentVelocity, maximumAsymptoticVelocity, maximumInitialAccel)
+                    -> -(maximumInitialAccel / maximumAsymptoticVelocity) * currentVelocity + maximumInitialAccel;
+
+    AccelerationInterpolator EXPONENTIAL =
+            (currentVelocity, maximumAsymptoticVelocity, maximumInitialAccel) -> {
+                if (currentVelocity == maximumAsymptoticVelocity)
+                    return 0;
+                else
+                    return Math.pow(Math.E, 1 / maximumAsymptoticVelocity + 1 / (currentVelocity - maximumAsymptoticVelocity)) * maximumInitialAccel;
+            };
+
+    AccelerationInterpolator HYPERBOLIC =
+            (currentVelocity, maximumAsymptoticVelocity, maximumInitialAccel)
+                    -> 1 / (currentVelocity + (1 / maximumInitialAccel))
+                    - (currentVelocity / maximumAsymptoticVelocity) / (maximumAsymptoticVelocity + (1 / maximumInitialAccel));
+
+    /**
+     * Fitted to measurements of one specific robot, ignores the given maximums.
+     */
+    AccelerationInterpolator EQUATION =
+            (currentVelocity, maximumAsymptoticVelocity, maximumInitialAccel)
+                    -> 0.831 + 5.9 * currentVelocity - 3.1 * Math.pow(currentVelocity, 2) + 0.366 * Math.pow(currentVelocity, 3);
+
     /**
      * @param currentVelocity           The current velocity in any consistent units (recommended m/s)
      * @param maximumAsymptoticVelocity The maximum velocity the robot can reach and keep, when applying the same force
@@ -20,4 +50,15 @@ public interface AccelerationInterpolator {
      */
     double getRealMaxAccel(double currentVelocity, double maximumAsymptoticVelocity, double maximumInitialAccel);
 
+    /**
+     * Profiles generated with an interpolator are only cached (see ProfileCache) if it has a cache key,
+     * or is one of the constants of this interface.
+     *
+     * @return a string which identifies this interpolator exactly, or null if profiles generated with it
+     * shouldn't be cached. null by default.
+     */
+    default String getCacheKey() {
+        return null;
+    }
+
 }
@@ -2,11 +2,16 @@ package org.greenblitz.motion.profiling;
 
 import org.greenblitz.motion.base.Point;
 import org.greenblitz.motion.base.State;
+import org.greenblitz.motion.profiling.constraints.TimingConstraint;
+import org.greenblitz.motion.profiling.curve.BezierCurve;
 import org.greenblitz.motion.profiling.curve.ICurve;
 import org.greenblitz.motion.profiling.curve.spline.QuinticSplineGenerator;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * @author Alexey
@@ -16,14 +21,39 @@ public class ChassisProfiler2D {
 
     public static final int SMOOTHING_TAIL_SIZE = 200;
 
+    /**
+     * When dividing adaptively, no sub-curve is longer (in polynomial time) than this many jumps.
+     */
+    public static final int ADAPTIVE_MAX_JUMP_RATIO = 16;
+
+    /**
+     * How the polynomials between the waypoints are generated.
+     */
+    public enum SplineType {
+        /**
+         * Every pair of waypoints gets it's own polynomial, with the second derivatives at the waypoints taken from
+         * the linear and angular velocities of the states. See QuinticSplineGenerator#generateSpline.
+         */
+        PAIRWISE,
+        /**
+         * The second derivatives at the middle waypoints are solved for the whole path at once, so the curvature
+         * is smooth across the waypoints. See QuinticSplineGenerator#generateSplines.
+         */
+        GLOBAL,
+        /**
+         * Every pair of waypoints gets a cubic Bezier curve, with the same derivatives at the waypoints as
+         * PAIRWISE. The curvature at the waypoints isn't controlled. See BezierCurve#cubic.
+         */
+        BEZIER
+    }
+
     public static MotionProfile2D generateProfile(List<State> locations, double jump, double maxLinearVel,
                                                   double maxAngularVel, double maxLinearAcc, double maxAngularAcc) {
         return generateProfile(locations, jump, maxLinearVel, maxAngularVel, maxLinearAcc, maxAngularAcc, 0);
     }
 
     public static MotionProfile2D generateProfile(List<State> locations, double jump, ProfilingData data, double tStart) {
-        return generateProfile(locations, jump, 0, 0, data.getMaxLinearVelocity(), data.getMaxAngularVelocity(),
-                data.getMaxLinearAccel(), data.getMaxAngularAccel(), tStart, 1.0, SMOOTHING_TAIL_SIZE);
+        return generateProfile(locations, jump, 0, 0, data, tStart, 1.0, SMOOTHING_TAIL_SIZE);
     }
 
     public static MotionProfile2D generateProfile(List<State> locations, double jump, double maxLinearVel,
@@ -33,14 +63,12 @@ public class ChassisProfiler2D {
 
     public static MotionProfile2D generateProfile(List<State> locations, double jump, ProfilingData d, double tStart,
                                                   double tForCurve) {
-        return generateProfile(locations, jump, 0, 0, d.getMaxLinearVelocity(), d.getMaxAngularVelocity(),
-                d.getMaxLinearAccel(), d.getMaxAngularAccel(), tStart, tForCurve, SMOOTHING_TAIL_SIZE);
+        return generateProfile(locations, jump, 0, 0, d, tStart, tForCurve, SMOOTHING_TAIL_SIZE);
     }
 
     public static MotionProfile2D generateProfile(List<State> locations, double jump, ProfilingData d, double tStart,
                                                   double tForCurve, int smoothingTail) {
-        return generateProfile(locations, jump, 0, 0, d.getMaxLinearVelocity(), d.getMaxAngularVelocity(),
-                d.getMaxLinearAccel(), d.getMaxAngularAccel(), tStart, tForCurve, smoothingTail);
+        return generateProfile(locations, jump, 0, 0, d, tStart, tForCurve, smoothingTail);
     }
 
     public static MotionProfile2D generateProfile(List<State> locations,
@@ -50,9 +78,27 @@ public class ChassisProfiler2D {
                                                   double tStart,
                                                   double tForCurve,
                                                   int smoothingTail) {
-        return generateProfile(locations, jump, velocityStart, velocityEnd,
-                d.getMaxLinearVelocity(), d.getMaxAngularVelocity(),
-                d.getMaxLinearAccel(), d.getMaxAngularAccel(), tStart, tForCurve, smoothingTail);
+        return generateProfile(locations, jump, velocityStart, velocityEnd, d, tStart, tForCurve, smoothingTail,
+                0, Collections.emptyList());
+    }
+
+    /**
+     * Same as generateProfile, but the velocity and acceleration are also limited by the given constraints
+     * wherever they apply.
+     *
+     * @param constraints the timing constraints, see TimingConstraint
+     * @see ChassisProfiler2D#generateProfile(List, double, double, double, double, double, double, double, double, double, int, double, List)
+     */
+    public static MotionProfile2D generateProfile(List<State> locations,
+                                                  double jump,
+                                                  double velocityStart, double velocityEnd,
+                                                  ProfilingData d,
+                                                  double tStart,
+                                                  double tForCurve,
+                                                  int smoothingTail,
+                                                  List<TimingConstraint> constraints) {
+        return generateProfile(locations, jump, velocityStart, velocityEnd, d, tStart, tForCurve, smoothingTail,
+                0, constraints);
     }
 
     /**
@@ -76,26 +122,315 @@ public class ChassisProfiler2D {
                                                   double tStart,
                                                   double tForCurve,
                                                   int smoothingTail) {
+        return generateProfile(locations, jump, velocityStart, velocityEnd, maxLinearVel, maxAngularVel,
+                maxLinearAcc, maxAngularAcc, tStart, tForCurve, smoothingTail, 0);
+    }
+
+    /**
+     * Same as the fixed jump generateProfile, but when curvatureTolerance is positive the path is divided
+     * adaptively: straight or evenly curved parts are divided to sub-curves of up to ADAPTIVE_MAX_JUMP_RATIO
+     * jumps, and only the parts where the curvature changes are divided all the way to jump. This usually cuts
+     * the amount of sub-curves, and with it the generation time, by an order of magnitude.
+     * <p>
+     * The curvature of every sub-curve is within curvatureTolerance of the curvature used for it (at 5 evenly
+     * spaced points), so the maximal velocity used for it is within
+     * curvatureTolerance * maxLinearVel^2 / maxAngularVel of the fixed jump one. Note that smoothingTail counts
+     * sub-curves, so with longer sub-curves the same tail smooths over a longer distance.
+     *
+     * @param curvatureTolerance the allowed curvature error of a sub-curve, in 1/meters. 0 or less to
+     *                           divide to fixed jumps.
+     * @see ChassisProfiler2D#generateProfile(List, double, double, double, double, double, double, double, double, double, int)
+     */
+    public static MotionProfile2D generateProfile(List<State> locations,
+                                                  double jump,
+                                                  double velocityStart, double velocityEnd,
+                                                  double maxLinearVel, double maxAngularVel, double maxLinearAcc, double maxAngularAcc,
+                                                  double tStart,
+                                                  double tForCurve,
+                                                  int smoothingTail,
+                                                  double curvatureTolerance) {
+        return generateProfile(locations, jump, velocityStart, velocityEnd, maxLinearVel, maxAngularVel,
+                maxLinearAcc, maxAngularAcc, tStart, tForCurve, smoothingTail, curvatureTolerance,
+                Collections.emptyList());
+    }
+
+    /**
+     * The most general generateProfile. On top of the maximal velocities and accelerations, which limit the whole
+     * path, the velocity and acceleration at every sub-curve are also limited by the given constraints
+     * (e.g. slowing down only in tight turns or in a part of the field), so the global limits don't have to
+     * be lowered to cover the worst spot of the path.
+     * <p>
+     * The profile is only cached if every constraint has a cache key.
+     *
+     * @param constraints the timing constraints, see TimingConstraint
+     * @see ChassisProfiler2D#generateProfile(List, double, double, double, double, double, double, double, double, double, int, double)
+     */
+    public static MotionProfile2D generateProfile(List<State> locations,
+                                                  double jump,
+                                                  double velocityStart, double velocityEnd,
+                                                  double maxLinearVel, double maxAngularVel, double maxLinearAcc, double maxAngularAcc,
+                                                  double tStart,
+                                                  double tForCurve,
+                                                  int smoothingTail,
+                                                  double curvatureTolerance,
+                                                  List<TimingConstraint> constraints) {
+        return generateProfile(locations, jump, velocityStart, velocityEnd,
+                new ProfilingData(maxLinearVel, maxLinearAcc, maxAngularVel, maxAngularAcc),
+                tStart, tForCurve, smoothingTail, curvatureTolerance, constraints);
+    }
+
+    /**
+     * Same as the most general generateProfile, with the maximal velocities and accelerations and the acceleration
+     * interpolator (e.g. a TabulatedAccelerationInterpolator of the drivetrain) of the given data.
+     * <p>
+     * The profile is only cached if the interpolator and every constraint have a cache key.
+     *
+     * @see ChassisProfiler2D#generateProfile(List, double, double, double, double, double, double, double, double, double, int, double, List)
+     */
+    public static MotionProfile2D generateProfile(List<State> locations,
+                                                  double jump,
+                                                  double velocityStart, double velocityEnd,
+                                                  ProfilingData d,
+                                                  double tStart,
+                                                  double tForCurve,
+                                                  int smoothingTail,
+                                                  double curvatureTolerance,
+                                                  List<TimingConstraint> constraints) {
+        return generateProfile(locations, jump, velocityStart, velocityEnd, d, tStart, tForCurve, smoothingTail,
+                curvatureTolerance, constraints, ProfilingOptions.DEFAULT);
+    }
+
+    /**
+     * Same as the most general generateProfile, generated as the given options say (spline type, parallel
+     * division and caches).
+     *
+     * @param options how to generate the profile, ProfilingOptions.DEFAULT by default
+     * @see ChassisProfiler2D#generateProfile(List, double, double, double, ProfilingData, double, double, int, double, List)
+     */
+    public static MotionProfile2D generateProfile(List<State> locations,
+                                                  double jump,
+                                                  double velocityStart, double velocityEnd,
+                                                  ProfilingData d,
+                                                  double tStart,
+                                                  double tForCurve,
+                                                  int smoothingTail,
+                                                  double curvatureTolerance,
+                                                  List<TimingConstraint> constraints,
+                                                  ProfilingOptions options) {
+        TimingConstraint[] constraintArray = constraints.toArray(DiscreteVelocityGraph.NO_CONSTRAINTS);
+        ProfileCache cache = options.getProfileCache();
+        if (cache != null && ProfileCache.canCache(d.getAccelerationInterpolator())
+                && ProfileCache.canCache(constraintArray)) {
+            String key = ProfileCache.keyBuilder("ChassisProfiler2D.generateProfile").putStates(locations)
+                    .putDouble(jump).putDouble(velocityStart).putDouble(velocityEnd).putData(d)
+                    .putDouble(tStart).putDouble(tForCurve).putInt(smoothingTail).putDouble(curvatureTolerance)
+                    .putConstraints(constraintArray).putString(options.getSplineType().name())
+                    .build();
+            return cache.getOrGenerate(key, () -> generateProfileUncached(locations, jump, velocityStart, velocityEnd,
+                    d, tStart, tForCurve, smoothingTail, curvatureTolerance, constraintArray, options));
+        }
+        return generateProfileUncached(locations, jump, velocityStart, velocityEnd, d, tStart, tForCurve,
+                smoothingTail, curvatureTolerance, constraintArray, options);
+    }
+
+    /**
+     * Uses the jump and smoothing tail of the configuration.
+     *
+     * @see ChassisProfiler2D#generateProfile(List, double, double, double, double, double, double, double, double, double, int)
+     */
+    public static MotionProfile2D generateProfile(List<State> locations, ProfilingData d, ProfilingConfiguration config,
+                                                  double tStart, double tForCurve) {
+        return generateProfile(locations, config.getJump(), 0, 0, d, tStart, tForCurve, config.getSmoothingTail());
+    }
+
+    private static MotionProfile2D generateProfileUncached(List<State> locations,
+                                                           double jump,
+                                                           double velocityStart, double velocityEnd,
+                                                           ProfilingData d,
+                                                           double tStart,
+                                                           double tForCurve,
+                                                           int smoothingTail,
+                                                           double curvatureTolerance,
+                                                           TimingConstraint[] constraints,
+                                                           ProfilingOptions options) {
         int capacity = ((int) ((locations.size() - 1) / jump)) + locations.size() + 1;
         MotionProfile1D linearProfile = new MotionProfile1D(capacity, new MotionProfile1D.Segment(0, 0, 0, 0, 0));
         MotionProfile1D angularProfile = new MotionProfile1D(capacity, new MotionProfile1D.Segment(0, 0, 0, 0, 0));
-        MotionProfile1D.Segment linearSegment = new MotionProfile1D.Segment(0, 1, 0, 0, 0);
-        MotionProfile1D.Segment angularSegment, prevAngularSegment = new MotionProfile1D.Segment(0, 1, 0, 0, 0);
-
-        DiscreteVelocityGraph velByLoc;
 
-        double t0 = tStart;
         /*
          * divides the path All sub-curves with kinda equal curve
          */
-        List<ICurve> subCurves = dividePathToSubCurves(locations, jump, tForCurve, capacity);
+        PathGeometry subCurves = dividePathToSubCurves(locations, jump, tForCurve, curvatureTolerance, capacity, options);
 
-        velByLoc = new DiscreteVelocityGraph(subCurves, velocityStart, velocityEnd, maxLinearVel, maxAngularVel, maxLinearAcc, maxAngularAcc, smoothingTail);
-        double curvature = 0;
+        DiscreteVelocityGraph velByLoc = new DiscreteVelocityGraph(subCurves, velocityStart, velocityEnd,
+                d.getMaxLinearVelocity(), d.getMaxAngularVelocity(), d.getMaxLinearAccel(), d.getMaxAngularAccel(),
+                smoothingTail, d.getAccelerationInterpolator(), constraints);
 
+        ProfileBuilder builder = new ProfileBuilder(linearProfile, angularProfile, tStart);
         for (int j = 0; j < subCurves.size(); j++) {
+            builder.add(velByLoc, subCurves, j);
+        }
+        builder.finish();
 
-            curvature = subCurves.get(j).getCurvature();
+        MotionProfile2D ret = new MotionProfile2D(linearProfile, angularProfile);
+        ret.buildTimeIndex();
+        return ret;
+    }
+
+    /**
+     * Same as generateProfile, but only generates the beginning of the profile before returning. The rest is
+     * generated on a background thread while the returned profile is already being followed, so the robot can
+     * start moving a few milliseconds after a replan instead of waiting for the whole profile.
+     * <p>
+     * The returned profile is exactly the same as the one generateProfile would return. Looking up a time that
+     * wasn't generated yet blocks until it is. getTEnd() blocks until the whole profile is generated, but
+     * isOver() only blocks when the given time wasn't generated yet.
+     *
+     * @param locations     path with points
+     * @param jump          the jump in "polynomial time" between 0 and 1. should be around 0.001
+     * @param velocityStart the start velocity of the robot
+     * @param velocityEnd   the end velocity. Double.POSITIVE_INFINITY to end moving as fast as possible.
+     * @param d             the maximal velocities and accelerations
+     * @param tStart        the start time of the profile
+     * @param tForCurve     the time range for the polynomials
+     * @param smoothingTail the bigger the smoother the velocity graph will be, but a little slower
+     * @param leadTime      how many seconds of the profile must be ready before this returns.
+     *                      A few hundred milliseconds are usually enough.
+     * @return A profile which is still being generated
+     * @see ChassisProfiler2D#generateProfile(List, double, double, double, double, double, double, double, double, double, int)
+     */
+    public static StreamingMotionProfile2D generateStreamingProfile(List<State> locations,
+                                                                     double jump,
+                                                                     double velocityStart, double velocityEnd,
+                                                                     ProfilingData d,
+                                                                     double tStart,
+                                                                     double tForCurve,
+                                                                     int smoothingTail,
+                                                                     double leadTime) {
+        return generateStreamingProfile(locations, jump, velocityStart, velocityEnd, d, tStart, tForCurve,
+                smoothingTail, leadTime, Collections.emptyList());
+    }
+
+    /**
+     * Same as generateStreamingProfile, with timing constraints.
+     *
+     * @param constraints the timing constraints, see TimingConstraint
+     * @see ChassisProfiler2D#generateStreamingProfile(List, double, double, double, ProfilingData, double, double, int, double)
+     * @see ChassisProfiler2D#generateProfile(List, double, double, double, double, double, double, double, double, double, int, double, List)
+     */
+    public static StreamingMotionProfile2D generateStreamingProfile(List<State> locations,
+                                                                     double jump,
+                                                                     double velocityStart, double velocityEnd,
+                                                                     ProfilingData d,
+                                                                     double tStart,
+                                                                     double tForCurve,
+                                                                     int smoothingTail,
+                                                                     double leadTime,
+                                                                     List<TimingConstraint> constraints) {
+        return generateStreamingProfile(locations, jump, velocityStart, velocityEnd, d, tStart, tForCurve,
+                smoothingTail, leadTime, constraints, ProfilingOptions.DEFAULT);
+    }
+
+    /**
+     * Same as generateStreamingProfile, with timing constraints, generated as the given options say. The path is
+     * always divided on the streaming thread and the profile cache isn't used, since the profile is followed
+     * while it is generated.
+     *
+     * @param options how to generate the profile, ProfilingOptions.DEFAULT by default
+     * @see ChassisProfiler2D#generateStreamingProfile(List, double, double, double, ProfilingData, double, double, int, double, List)
+     */
+    public static StreamingMotionProfile2D generateStreamingProfile(List<State> locations,
+                                                                     double jump,
+                                                                     double velocityStart, double velocityEnd,
+                                                                     ProfilingData d,
+                                                                     double tStart,
+                                                                     double tForCurve,
+                                                                     int smoothingTail,
+                                                                     double leadTime,
+                                                                     List<TimingConstraint> constraints,
+                                                                     ProfilingOptions options) {
+        StreamingProfileGenerator generator = new StreamingProfileGenerator(locations, jump, velocityStart, velocityEnd,
+                d.getMaxLinearVelocity(), d.getMaxAngularVelocity(), d.getMaxLinearAccel(), d.getMaxAngularAccel(),
+                tStart, tForCurve, smoothingTail, d.getAccelerationInterpolator(),
+                constraints.toArray(DiscreteVelocityGraph.NO_CONSTRAINTS), options);
+        return generator.start(leadTime);
+    }
+
+    /**
+     * A growing list of where the sub-curves of a curve start and end, in order. Optionally also keeps the
+     * curvatures already calculated at the boundaries and the middles of the sub-curves, so they aren't
+     * calculated again for the geometry.
+     */
+    private static class Boundaries {
+
+        private double[] values;
+        /**
+         * The curvature at every boundary, and in the middle of the sub-curve starting at it. NaN where it
+         * wasn't calculated, null when not kept.
+         */
+        private double[] curvatures, middleCurvatures;
+        private int size = 0;
+
+        Boundaries(int capacity, boolean keepCurvatures) {
+            capacity = Math.max(capacity, 2);
+            values = new double[capacity];
+            if (keepCurvatures) {
+                curvatures = new double[capacity];
+                middleCurvatures = new double[capacity];
+            }
+        }
+
+        void add(double u) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+                if (curvatures != null) {
+                    curvatures = Arrays.copyOf(curvatures, 2 * size);
+                    middleCurvatures = Arrays.copyOf(middleCurvatures, 2 * size);
+                }
+            }
+            if (curvatures != null) {
+                curvatures[size] = Double.NaN;
+                middleCurvatures[size] = Double.NaN;
+            }
+            values[size++] = u;
+        }
+
+        /**
+         * Adds the end of a sub-curve which starts at the last boundary, with the curvatures of the sub-curve.
+         */
+        void add(double u, double startCurvature, double middleCurvature, double endCurvature) {
+            curvatures[size - 1] = startCurvature;
+            middleCurvatures[size - 1] = middleCurvature;
+            add(u);
+            curvatures[size - 1] = endCurvature;
+        }
+    }
+
+    /**
+     * Converts the velocity graph segments of the path to linear and angular profile segments, one by one.
+     */
+    private static class ProfileBuilder {
+
+        private final MotionProfile1D linearProfile, angularProfile;
+        private MotionProfile1D.Segment linearSegment = new MotionProfile1D.Segment(0, 1, 0, 0, 0);
+        private MotionProfile1D.Segment prevAngularSegment = new MotionProfile1D.Segment(0, 1, 0, 0, 0);
+        private double t0;
+        private double curvature = 0;
+        private int added = 0;
+
+        ProfileBuilder(MotionProfile1D linearProfile, MotionProfile1D angularProfile, double tStart) {
+            this.linearProfile = linearProfile;
+            this.angularProfile = angularProfile;
+            t0 = tStart;
+        }
+
+        /**
+         * Adds the profile segments matching the j'th segment of the graph. Must be called with j = 0, 1, 2...
+         */
+        void add(DiscreteVelocityGraph velByLoc, PathGeometry subCurves, int j) {
+            MotionProfile1D.Segment angularSegment;
+
+            curvature = subCurves.getCurvature(j);
             linearSegment = velByLoc.generateSegment(j, t0);
 
             t0 = linearSegment.getTEnd();
@@ -103,21 +438,139 @@ public class ChassisProfiler2D {
             angularSegment = linearSegment.clone();
 
             angularSegment.setStartVelocity(curvature * linearProfile.getVelocity(linearProfile.getTEnd()));
-            angularSegment.setStartLocation(curvature * angularProfile.getLocation(angularProfile.getTEnd()));
+            angularSegment.setStartLocation(curvature * prevAngularSegment.getLocation(prevAngularSegment.getTEnd()));
 
             prevAngularSegment.setAccel((angularSegment.getStartVelocity() - prevAngularSegment.getStartVelocity())
                     / (prevAngularSegment.getTEnd() - prevAngularSegment.getTStart()));
 
+            // The acceleration of an angular segment is only known once the next one is, so it is added one step late
+            if (added != 0)
+                angularProfile.unsafeAddSegment(prevAngularSegment);
             linearProfile.unsafeAddSegment(linearSegment);
-            angularProfile.unsafeAddSegment(angularSegment);
 
             prevAngularSegment = angularSegment;
+            added++;
+        }
 
+        void finish() {
+            prevAngularSegment.setAccel(curvature * linearSegment.accel);
+            angularProfile.unsafeAddSegment(prevAngularSegment);
         }
 
-        prevAngularSegment.setAccel(curvature * linearSegment.accel);
+    }
 
-        return new MotionProfile2D(linearProfile, angularProfile);
+    /**
+     * Generates a profile in growing windows of waypoint pairs.
+     * <p>
+     * Only the end of the path that isn't divided yet can change the profile, and it can do so in two ways:
+     * by the smoothing of the maximum velocities, which reaches smoothingTail sub-curves back, and by the
+     * backwards pass, which carries a velocity of somewhere between 0 and maxLinearVel into the known part.
+     * A segment is final once it is farther than the smoothing tail from the window end and the backwards pass
+     * gives it the same velocities for both extreme velocities (the backwards pass is monotonous in it's end
+     * velocity, so any velocity in between gives the same result too).
+     */
+    private static class StreamingProfileGenerator implements Runnable {
+
+        private final List<State> locations;
+        private final double jump, velocityStart, velocityEnd;
+        private final double maxLinearVel, maxAngularVel, maxLinearAcc, maxAngularAcc;
+        private final int smoothingTail;
+        private final AccelerationInterpolator interpolator;
+        private final TimingConstraint[] constraints;
+
+        private final StreamingMotionProfile2D profile;
+        private final ProfileBuilder builder;
+        private final PathGeometry subCurves;
+        private final PathSplines splines;
+        private int dividedPairs = 0;
+        private int windowPairs = 1;
+
+        StreamingProfileGenerator(List<State> locations, double jump, double velocityStart, double velocityEnd,
+                                  double maxLinearVel, double maxAngularVel, double maxLinearAcc, double maxAngularAcc,
+                                  double tStart, double tForCurve, int smoothingTail,
+                                  AccelerationInterpolator interpolator, TimingConstraint[] constraints,
+                                  ProfilingOptions options) {
+            this.locations = locations;
+            this.jump = jump;
+            this.velocityStart = velocityStart;
+            this.velocityEnd = velocityEnd;
+            this.maxLinearVel = maxLinearVel;
+            this.maxAngularVel = maxAngularVel;
+            this.maxLinearAcc = maxLinearAcc;
+            this.maxAngularAcc = maxAngularAcc;
+            this.smoothingTail = smoothingTail;
+            this.interpolator = interpolator;
+            this.constraints = constraints;
+
+            int capacity = ((int) ((locations.size() - 1) / jump)) + locations.size() + 1;
+            MotionProfile1D linearProfile = new MotionProfile1D(capacity, new MotionProfile1D.Segment(0, 0, 0, 0, 0));
+            MotionProfile1D angularProfile = new MotionProfile1D(capacity, new MotionProfile1D.Segment(0, 0, 0, 0, 0));
+            profile = new StreamingMotionProfile2D(linearProfile, angularProfile);
+            builder = new ProfileBuilder(linearProfile, angularProfile, tStart);
+            subCurves = new PathGeometry(capacity);
+            splines = generateSplines(locations, tForCurve, options);
+        }
+
+        StreamingMotionProfile2D start(double leadTime) {
+            double tStart = builder.t0;
+            while (!profile.isGenerationFinished() && profile.getAvailableTEnd() - tStart < leadTime) {
+                nextWindow();
+            }
+            if (!profile.isGenerationFinished()) {
+                Thread thread = new Thread(this, "ChassisProfiler2D streaming");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            return profile;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!profile.isGenerationFinished()) {
+                    nextWindow();
+                }
+            } catch (Throwable e) {
+                // Errors too, otherwise whoever waits for the profile would wait forever
+                profile.fail(e);
+                if (e instanceof Error)
+                    throw (Error) e;
+            }
+        }
+
+        private void nextWindow() {
+            int pairs = locations.size() - 1;
+            for (; dividedPairs < windowPairs && dividedPairs < pairs; dividedPairs++) {
+                subCurves.append(dividePairToSubCurves(splines, dividedPairs, jump, 0));
+            }
+            boolean last = dividedPairs == pairs;
+            windowPairs *= 2;
+
+            DiscreteVelocityGraph velByLoc = null;
+            int finalCount = builder.added;
+            if (last) {
+                velByLoc = new DiscreteVelocityGraph(subCurves, velocityStart, velocityEnd,
+                        maxLinearVel, maxAngularVel, maxLinearAcc, maxAngularAcc, smoothingTail, interpolator, constraints);
+                finalCount = subCurves.size();
+            } else if (subCurves.size() - 1 - smoothingTail > builder.added) {
+                velByLoc = new DiscreteVelocityGraph(subCurves, velocityStart,
+                        velocityEnd == Double.POSITIVE_INFINITY ? velocityEnd : 0,
+                        maxLinearVel, maxAngularVel, maxLinearAcc, maxAngularAcc, smoothingTail, interpolator, constraints);
+                finalCount = velByLoc.getFinalSegmentCount(builder.added, smoothingTail, maxLinearVel);
+            }
+
+            synchronized (profile) {
+                for (int j = builder.added; j < finalCount; j++) {
+                    builder.add(velByLoc, subCurves, j);
+                }
+                if (last) {
+                    builder.finish();
+                    profile.finishGeneration();
+                } else {
+                    profile.segmentsAdded();
+                }
+            }
+        }
     }
 
     /**
@@ -138,32 +591,215 @@ public class ChassisProfiler2D {
                                                   double velocityStart, double velocityEnd,
                                                   double maxVel, double maxAcc, double wheelBase,
                                                   double tForCurve, int tailSize) {
+        return generateProfileByWheel(locations, jump, velocityStart, velocityEnd, maxVel, maxAcc, wheelBase,
+                tForCurve, tailSize, 0);
+    }
+
+    /**
+     * Same as the fixed jump generateProfileByWheel, but divides the path adaptively when curvatureTolerance
+     * is positive.
+     *
+     * @param curvatureTolerance the allowed curvature error of a sub-curve, in 1/meters. 0 or less to
+     *                           divide to fixed jumps.
+     * @return A profile such that the X profile is the left wheel and the Y profile is the right wheel
+     * @see ChassisProfiler2D#generateProfile(List, double, double, double, double, double, double, double, double, double, int, double)
+     */
+    public static MotionProfile2D generateProfileByWheel(List<State> locations,
+                                                  double jump,
+                                                  double velocityStart, double velocityEnd,
+                                                  double maxVel, double maxAcc, double wheelBase,
+                                                  double tForCurve, int tailSize,
+                                                  double curvatureTolerance) {
+        return generateProfileByWheel(locations, jump, velocityStart, velocityEnd, maxVel, maxAcc, wheelBase,
+                tForCurve, tailSize, curvatureTolerance, ProfilingOptions.DEFAULT);
+    }
 
+    /**
+     * Same as generateProfileByWheel, generated as the given options say (spline type, parallel division and
+     * caches).
+     *
+     * @param options how to generate the profile, ProfilingOptions.DEFAULT by default
+     * @return A profile such that the X profile is the left wheel and the Y profile is the right wheel
+     * @see ChassisProfiler2D#generateProfileByWheel(List, double, double, double, double, double, double, double, int, double)
+     */
+    public static MotionProfile2D generateProfileByWheel(List<State> locations,
+                                                  double jump,
+                                                  double velocityStart, double velocityEnd,
+                                                  double maxVel, double maxAcc, double wheelBase,
+                                                  double tForCurve, int tailSize,
+                                                  double curvatureTolerance,
+                                                  ProfilingOptions options) {
+        ProfileCache cache = options.getProfileCache();
+        if (cache != null) {
+            String key = ProfileCache.keyBuilder("ChassisProfiler2D.generateProfileByWheel").putStates(locations)
+                    .putDouble(jump).putDouble(velocityStart).putDouble(velocityEnd)
+                    .putDouble(maxVel).putDouble(maxAcc).putDouble(wheelBase)
+                    .putDouble(tForCurve).putInt(tailSize).putDouble(curvatureTolerance)
+                    .putString(options.getSplineType().name())
+                    .build();
+            return cache.getOrGenerate(key, () -> generateProfileByWheelUncached(locations, jump,
+                    velocityStart, velocityEnd, maxVel, maxAcc, wheelBase, tForCurve, tailSize, curvatureTolerance,
+                    options));
+        }
+        return generateProfileByWheelUncached(locations, jump, velocityStart, velocityEnd, maxVel, maxAcc, wheelBase,
+                tForCurve, tailSize, curvatureTolerance, options);
+    }
+
+    private static MotionProfile2D generateProfileByWheelUncached(List<State> locations,
+                                                                  double jump,
+                                                                  double velocityStart, double velocityEnd,
+                                                                  double maxVel, double maxAcc, double wheelBase,
+                                                                  double tForCurve, int tailSize,
+                                                                  double curvatureTolerance,
+                                                                  ProfilingOptions options) {
         int capacity = ((int) ((locations.size() - 1) / jump)) + locations.size() + 1;
 
-        List<ICurve> subCurves = dividePathToSubCurves(locations, jump, tForCurve, capacity);
+        PathGeometry subCurves = dividePathToSubCurves(locations, jump, tForCurve, curvatureTolerance, capacity, options);
 
         WheelBasedVelocityGraph velByLoc = new WheelBasedVelocityGraph(subCurves, velocityStart, velocityEnd, maxVel, maxAcc, wheelBase, tailSize);
 
-        return velByLoc.generateProfile();
+        MotionProfile2D ret = velByLoc.generateProfile();
+        ret.buildTimeIndex();
+        return ret;
     }
 
-    private static List<ICurve> dividePathToSubCurves(List<State> locations, double jump, double tForCurve, int capacity) {
-        List<ICurve> subCurves = new ArrayList<>(capacity);
-        State first, second;
+    private static PathGeometry dividePathToSubCurves(List<State> locations, double jump, double tForCurve,
+                                                      double curvatureTolerance, int capacity,
+                                                      ProfilingOptions options) {
+        PathSplines splines = generateSplines(locations, tForCurve, options);
+        if (options.isParallelDivision() && locations.size() > 2)
+            return ForkJoinPool.commonPool().invoke(
+                    new DivisionTask(splines, 0, locations.size() - 1, jump, curvatureTolerance));
+
+        PathGeometry subCurves = new PathGeometry(capacity);
         for (int i = 0; i < locations.size() - 1; i++) {
+            subCurves.append(dividePairToSubCurves(splines, i, jump, curvatureTolerance));
+        }
+        return subCurves;
+    }
+
+    /**
+     * @return the spline between every waypoint and the one after it, of the spline type of the options
+     */
+    private static PathSplines generateSplines(List<State> locations, double tForCurve, ProfilingOptions options) {
+        SplineType type = options.getSplineType();
+        return new PathSplines(locations, tForCurve, type, generateCurves(locations, tForCurve, type),
+                options.getGeometryCache());
+    }
 
-            first = locations.get(i);
-            second = locations.get(i + 1);
+    private static ICurve[] generateCurves(List<State> locations, double tForCurve, SplineType type) {
+        if (type == SplineType.GLOBAL && locations.size() > 2)
+            return QuinticSplineGenerator.generateSplines(locations, tForCurve);
+
+        ICurve[] ret = new ICurve[Math.max(locations.size() - 1, 0)];
+        for (int i = 0; i < ret.length; i++) {
+            State first = locations.get(i);
+            State second = locations.get(i + 1);
             // This is arbitrary, but empirical evidence suggests this works well
             double tToUse = tForCurve * Point.dist(first, second);
+            if (type == SplineType.BEZIER)
+                ret[i] = BezierCurve.cubic(first, second, tToUse);
+            else
+                ret[i] = QuinticSplineGenerator.generateSpline(first, second,
+                        tToUse
+                );
+        }
+        return ret;
+    }
 
-            divideToEqualCurvatureSubcurves(subCurves, QuinticSplineGenerator.generateSpline(first, second,
-                    tToUse
-            ), jump);
+    /**
+     * The splines of a path, and the geometry cache to look their division up in.
+     */
+    private static class PathSplines {
+
+        private final List<State> locations;
+        private final double tForCurve;
+        private final SplineType type;
+        private final ICurve[] curves;
+        private final GeometryCache cache;
+        /**
+         * The hash of all the waypoints, when a spline depends on the whole path. Calculated once instead of
+         * for every pair.
+         */
+        private final String pathHash;
+
+        PathSplines(List<State> locations, double tForCurve, SplineType type, ICurve[] curves, GeometryCache cache) {
+            this.locations = locations;
+            this.tForCurve = tForCurve;
+            this.type = type;
+            this.curves = curves;
+            this.cache = cache;
+            pathHash = cache != null && type == SplineType.GLOBAL && locations.size() > 2
+                    ? ProfileCache.keyBuilder("ChassisProfiler2D.path").putStates(locations).build()
+                    : null;
+        }
 
+        /**
+         * @return the key of the division of the spline at index. A global spline depends on the whole path,
+         * the others only on their waypoints.
+         */
+        private String getKey(int index, double jump, double curvatureTolerance) {
+            ProfileCache.KeyBuilder key = ProfileCache.keyBuilder("ChassisProfiler2D.dividePair")
+                    .putString(type.name()).putDouble(tForCurve).putDouble(jump).putDouble(curvatureTolerance);
+            if (pathHash != null)
+                key.putString(pathHash).putInt(index);
+            else
+                key.putState(locations.get(index)).putState(locations.get(index + 1));
+            return key.build();
+        }
+    }
+
+    /**
+     * Divides the spline between the waypoint at index and the one after it to sub-curves, or takes them from
+     * the geometry cache.
+     */
+    private static PathGeometry dividePairToSubCurves(PathSplines splines, int index, double jump,
+                                                      double curvatureTolerance) {
+        if (splines.cache == null)
+            return dividePairToSubCurves(splines.curves[index], jump, curvatureTolerance);
+        return splines.cache.getOrDivide(splines.getKey(index, jump, curvatureTolerance),
+                () -> dividePairToSubCurves(splines.curves[index], jump, curvatureTolerance));
+    }
+
+    private static PathGeometry dividePairToSubCurves(ICurve spline, double jump, double curvatureTolerance) {
+        PathGeometry ret = new PathGeometry((int) (1 / jump) + 1);
+        if (curvatureTolerance > 0)
+            divideAdaptively(ret, spline, jump, curvatureTolerance);
+        else
+            divideToEqualCurvatureSubcurves(ret, spline, jump);
+        return ret;
+    }
+
+    /**
+     * Divides the waypoint pairs [from, to) by splitting the range in half until single pairs are left,
+     * then concatenates the results in order so they match the serial division exactly.
+     */
+    private static class DivisionTask extends RecursiveTask<PathGeometry> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final PathSplines splines;
+        private final int from, to;
+        private final double jump, curvatureTolerance;
+
+        DivisionTask(PathSplines splines, int from, int to, double jump, double curvatureTolerance) {
+            this.splines = splines;
+            this.from = from;
+            this.to = to;
+            this.jump = jump;
+            this.curvatureTolerance = curvatureTolerance;
+        }
+
+        @Override
+        protected PathGeometry compute() {
+            if (to - from == 1)
+                return dividePairToSubCurves(splines, from, jump, curvatureTolerance);
+            int middle = (from + to) >>> 1;
+            DivisionTask left = new DivisionTask(splines, from, middle, jump, curvatureTolerance);
+            left.fork();
+            PathGeometry right = new DivisionTask(splines, middle, to, jump, curvatureTolerance).compute();
+            return left.join().append(right);
         }
-        return subCurves;
     }
 
     public static double getMaxVelocity(double maxLinearVel, double maxAngularVel, double curvature) {
@@ -175,26 +811,106 @@ public class ChassisProfiler2D {
     }
 
     /**
-     * This function takes one curve, and stores it's subcurves in a list,
+     * This function takes one curve, and stores the geometry of it's subcurves,
      * such as each subcurve continues the previous one and each subcurve will have
      * roughly equal curve.
      *
-     * @param returnList The list to which the subcurves will be added
+     * @param returnList The geometry to which the subcurves will be added
      * @param source     The main curve to be divided
      * @param jump       Jump intervals, when sampling the curve the function will sample
      *                   every 'jump' units.
      * @return returnList
      */
-    private static List<ICurve> divideToEqualCurvatureSubcurves(List<ICurve> returnList, ICurve source, double jump) {
+    private static PathGeometry divideToEqualCurvatureSubcurves(PathGeometry returnList, ICurve source, double jump) {
+        Boundaries boundaries = new Boundaries((int) (1 / jump) + 2, false);
+        boundaries.add(0);
+        for (double t0 = jump; t0 < 1.0; t0 += jump) {
+            boundaries.add(t0);
+        }
+        boundaries.add(1);
+
+        returnList.add(source, boundaries.values, boundaries.curvatures, boundaries.middleCurvatures,
+                boundaries.size);
+        return returnList;
+    }
+
+    /**
+     * Like divideToEqualCurvatureSubcurves, but only divides finely where the curvature changes. The curve
+     * is first divided to pieces of ADAPTIVE_MAX_JUMP_RATIO jumps, and each piece is halved until the
+     * curvature along it is within curvatureTolerance of it's general curvature and it turns by less than
+     * about a radian, or until it is about jump long.
+     *
+     * @param returnList         The geometry to which the subcurves will be added
+     * @param source             The main curve to be divided
+     * @param jump               The minimal length of a subcurve, in polynomial time
+     * @param curvatureTolerance The allowed difference between the curvature of a subcurve and it's
+     *                           general curvature
+     * @return returnList
+     */
+    private static PathGeometry divideAdaptively(PathGeometry returnList, ICurve source, double jump,
+                                                 double curvatureTolerance) {
+        double maxJump = Math.min(1.0, ADAPTIVE_MAX_JUMP_RATIO * jump);
         double t0, tPrev = 0;
+        Boundaries boundaries = new Boundaries((int) (1 / maxJump) + 2, true);
+        double[] scratch = new double[5];
 
-        for (t0 = jump; t0 < 1.0; tPrev = t0, t0 += jump) {
-            returnList.add(source.getSubCurve(tPrev, t0));
+        boundaries.add(0);
+        for (t0 = maxJump; t0 < 1.0; tPrev = t0, t0 += maxJump) {
+            divideAdaptively(boundaries, source, tPrev, t0, jump, curvatureTolerance, scratch);
         }
+        divideAdaptively(boundaries, source, tPrev, 1, jump, curvatureTolerance, scratch);
 
-        returnList.add(source.getSubCurve(tPrev, 1));
+        returnList.add(source, boundaries.values, boundaries.curvatures, boundaries.middleCurvatures,
+                boundaries.size);
         return returnList;
     }
 
+    /**
+     * Adds the ends of the sub-curves [uStart, uEnd] is divided to.
+     */
+    private static void divideAdaptively(Boundaries boundaries, ICurve source, double uStart, double uEnd,
+                                         double jump, double curvatureTolerance, double[] scratch) {
+        // 1.5 and not 2 so that rounding errors won't stop a piece of two jumps from being halved
+        if (uEnd - uStart < 1.5 * jump) {
+            boundaries.add(uEnd);
+            return;
+        }
+        if (isCurvatureUniform(source, uStart, uEnd, curvatureTolerance, scratch)) {
+            boundaries.add(uEnd, scratch[2], scratch[3], scratch[4]);
+            return;
+        }
+        double uMiddle = (uStart + uEnd) / 2;
+        divideAdaptively(boundaries, source, uStart, uMiddle, jump, curvatureTolerance, scratch);
+        divideAdaptively(boundaries, source, uMiddle, uEnd, jump, curvatureTolerance, scratch);
+    }
+
+    /**
+     * @param scratch at least 5 elements. The curvatures at the start, middle and end are written to 2, 3 and 4.
+     * @return whether the curvature of source between uStart and uEnd is close enough to it's general curvature
+     * (the average of the curvature at the start, middle and end, like ICurve#getCurvature())
+     */
+    private static boolean isCurvatureUniform(ICurve source, double uStart, double uEnd, double curvatureTolerance,
+                                              double[] scratch) {
+        double size = uEnd - uStart;
+        double start = source.getCurvature(uStart);
+        double middle = source.getCurvature(uStart + 0.5 * size);
+        double end = source.getCurvature(uEnd);
+        double curvature = (start + middle + end) / 3.0;
+        scratch[2] = start;
+        scratch[3] = middle;
+        scratch[4] = end;
+        // A sub-curve is profiled with a single curvature, which gets inaccurate when it turns too much
+        source.getLocation(uStart, scratch);
+        double startX = scratch[0], startY = scratch[1];
+        source.getLocation(uEnd, scratch);
+        if (Math.abs(curvature) * Math.hypot(startX - scratch[0], startY - scratch[1]) > 1)
+            return false;
+        // Checked at 5 evenly spaced points
+        return Math.abs(start - curvature) <= curvatureTolerance
+                && Math.abs(middle - curvature) <= curvatureTolerance
+                && Math.abs(end - curvature) <= curvatureTolerance
+                && Math.abs(source.getCurvature(uStart + 0.25 * size) - curvature) <= curvatureTolerance
+                && Math.abs(source.getCurvature(uStart + 0.75 * size) - curvature) <= curvatureTolerance;
+    }
 
 }
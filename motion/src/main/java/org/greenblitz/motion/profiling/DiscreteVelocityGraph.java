@@ -1,48 +1,91 @@
 package org.greenblitz.motion.profiling;
 
-import org.greenblitz.motion.profiling.curve.ICurve;
+import org.greenblitz.motion.profiling.constraints.TimingConstraint;
 import org.greenblitz.utils.CSVWrapper;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
+ * The velocity graph of a path by distance. Segment i of the graph goes from distances[i] to distances[i + 1],
+ * and every property of the segments is stored in a primitive array of it's own.
+ * <p>
+ * The smoothing, the forwards pass and the backwards pass are each done in a single loop over the arrays
+ * and don't keep any state between calls, and a graph never touches any other graph, so any number of
+ * graphs can be built on different threads at the same time.
+ * <p>
+ * On top of the velocity and acceleration limits by curvature, every segment is limited by the timing constraints
+ * the graph was made with. The velocity limits are evaluated once per segment, and the acceleration limits
+ * (which depend on the velocity) in every step of the passes.
+ * <p>
  * Package protected on purpose.
  *
  * @author alexey
  */
 class DiscreteVelocityGraph {
 
-    protected List<VelocitySegment> segments;
-    protected boolean finishAsap;
-
-    public DiscreteVelocityGraph(List<ICurve> track, double vStart, double vEnd, double maxLinearVel,
+    static final TimingConstraint[] NO_CONSTRAINTS = new TimingConstraint[0];
+
+    protected final int segmentCount;
+    protected final double[] distances;
+    protected final double[] curvature;
+    protected final double[] velocityMax;
+    protected final double[] velocityLimit;
+    protected final double[] velocityMaxSmoothed;
+    protected final double[] accel;
+    protected final double[] velocityStartForwards;
+    protected final double[] velocityEndForwards;
+    protected final double[] velocityStartBackwards;
+    protected final double[] velocityEndBackwards;
+    protected final boolean finishAsap;
+    protected final AccelerationInterpolator interpolator;
+    protected final PathGeometry track;
+    protected final TimingConstraint[] constraints;
+
+    public DiscreteVelocityGraph(PathGeometry track, double vStart, double vEnd, double maxLinearVel,
                                  double maxAngularVel, double maxLinearAcc, double maxAngularAcc, int tailSize) {
+        this(track, vStart, vEnd, maxLinearVel, maxAngularVel, maxLinearAcc, maxAngularAcc, tailSize,
+                AccelerationInterpolator.LINEAR, NO_CONSTRAINTS);
+    }
 
-        double tmpLength = 0;
+    public DiscreteVelocityGraph(PathGeometry track, double vStart, double vEnd, double maxLinearVel,
+                                 double maxAngularVel, double maxLinearAcc, double maxAngularAcc, int tailSize,
+                                 AccelerationInterpolator interpolator, TimingConstraint[] constraints) {
+
+        this.track = track;
+        this.interpolator = interpolator;
+        this.constraints = constraints;
+        segmentCount = track.size();
+        distances = new double[segmentCount + 1];
+        curvature = new double[segmentCount];
+        velocityMax = new double[segmentCount];
+        // Without constraints the limit is just the maximal velocity by curvature
+        velocityLimit = constraints.length == 0 ? velocityMax : new double[segmentCount];
+        velocityMaxSmoothed = new double[segmentCount];
+        accel = new double[segmentCount];
+        velocityStartForwards = new double[segmentCount];
+        velocityEndForwards = new double[segmentCount];
+        velocityStartBackwards = new double[segmentCount];
+        velocityEndBackwards = new double[segmentCount];
 
-        segments = new ArrayList<>();
-        double curveLen;
-        double curvature;
-
-        for (ICurve curve : track) {
-            curveLen = curve.getLength(1);
-            curvature = curve.getCurvature();
-            segments.add(new VelocitySegment(tmpLength, tmpLength + curveLen,
-                    ChassisProfiler2D.getMaxVelocity(maxLinearVel, maxAngularVel, curvature),
-                    ChassisProfiler2D.getMaxAcceleration(maxLinearAcc, maxAngularAcc, curvature))
-            );
-            tmpLength += curveLen;
+        double tmpLength = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            curvature[i] = track.getCurvature(i);
+            distances[i] = tmpLength;
+            velocityMax[i] = ChassisProfiler2D.getMaxVelocity(maxLinearVel, maxAngularVel, curvature[i]);
+            accel[i] = ChassisProfiler2D.getMaxAcceleration(maxLinearAcc, maxAngularAcc, curvature[i]);
+            tmpLength += track.getLength(i);
         }
-
-
-        int segCount = segments.size();
-        latestFilterTail = tailSize;
-        for (int i = 1; i < segCount - 1; i++) {
-            segments.get(i).filter(segments, i, tailSize);
-            latestFilterIndex = i;
+        distances[segmentCount] = tmpLength;
+
+        if (constraints.length != 0) {
+            for (int i = 0; i < segmentCount; i++) {
+                double limit = velocityMax[i];
+                for (TimingConstraint constraint : constraints)
+                    limit = Math.min(limit, constraint.getMaxVelocity(distances[i], track.getX(i), track.getY(i), curvature[i]));
+                velocityLimit[i] = limit;
+            }
         }
 
+        smooth(velocityLimit, velocityMaxSmoothed, segmentCount, tailSize);
+
         if (vEnd == Double.POSITIVE_INFINITY) {
             vEnd = 0;
             finishAsap = true;
@@ -50,192 +93,164 @@ class DiscreteVelocityGraph {
             finishAsap = false;
         }
 
-        segments.get(0).developForwardsFirst(segments.get(1), vStart);
-        segments.get(segCount - 1).developBackwardsLast(segments.get(segCount - 2), vEnd);
-
-        for (int i = 1; i < segCount - 1; i++) {
-            segments.get(i).developForwards(segments.get(i - 1), segments.get(i + 1));
-            segments.get(segCount - 1 - i).developBackwards(segments.get(segCount - 2 - i), segments.get(segCount - i));
-        }
-
-        segments.get(segCount - 1).developForwardsLast(segments.get(segCount - 2));
-        segments.get(0).developBackwardsFirst(segments.get(1));
-
-    }
-
-
-    public MotionProfile1D generateProfile(int index, double tStart) {
-        return new MotionProfile1D(generateSegment(index, tStart));
+        developForwards(vStart);
+        developBackwards(segmentCount, vEnd);
     }
 
-    public MotionProfile1D.Segment generateSegment(int index, double tStart) {
-        VelocitySegment seg = segments.get(index);
-
-        double vS = seg.getStartVelocity();
-        double vE = seg.getEndVelocity();
-
-        double dt = 2 * ((seg.distanceEnd - seg.distanceStart) / (vS + vE));
-        return new MotionProfile1D.Segment(
-                tStart, tStart + dt, (vE - vS) / dt, vS, seg.distanceStart);
-    }
-
-
-    public void generateCSV(String name) {
-        CSVWrapper file = CSVWrapper.generateWrapper(name, 0, "d", "velocity", "acceleration");
-        for (VelocitySegment range : segments)
-            range.insertToCSV(file);
-        file.flush();
-    }
-
-    private int latestFilterIndex = -1;
-    private double latestFilterValue = 0;
-    private int latestFilterTail;
-
-    class VelocitySegment {
-
-        public final AccelerationInterpolator exponentialInterpolator =
-                (currentVelocity, maximumAsymptoticVelocity, maximumInitialAccel) -> {
-                    if (currentVelocity == maximumAsymptoticVelocity)
-                        return 0;
-                    else
-                        return Math.pow(Math.E, 1 / maximumAsymptoticVelocity + 1 / (currentVelocity - maximumAsymptoticVelocity)) * maximumInitialAccel;
-                };
-
-        public final AccelerationInterpolator hyperbolicInterpolator =
-                (currentVelocity, maximumAsymptoticVelocity, maximumInitialAccel)
-                        -> 1 / (currentVelocity + (1 / maximumInitialAccel))
-                        - (currentVelocity / maximumAsymptoticVelocity) / (maximumAsymptoticVelocity + (1 / maximumInitialAccel));
-
-        public final AccelerationInterpolator linearInterpolator =
-                (currentVelocity, maximumAsymptoticVelocity, maximumInitialAccel)
-                        -> -(maximumInitialAccel / maximumAsymptoticVelocity) * currentVelocity + maximumInitialAccel;
-
-        public final AccelerationInterpolator equationInterpolator =
-                (currentVelocity, maximumAsymptoticVelocity, maximumInitialAccel)
-                        -> 0.831 + 5.9 * currentVelocity - 3.1 * Math.pow(currentVelocity, 2) + 0.366 * Math.pow(currentVelocity, 3);
-
-        public double velocityMax;
-        public double velocityMaxSmoothed;
-        public double velocityStartForwards;
-        public double velocityEndForwards;
-        public double velocityStartBackwards;
-        public double velocityEndBackwards;
-        public double accel;
-        public double distanceStart, distanceEnd;
-        public AccelerationInterpolator interpolator;
-
-        public VelocitySegment(double start, double end, double maxV, double accel) {
-            this.distanceStart = start;
-            this.distanceEnd = end;
-            this.accel = accel;
-            this.velocityMax = maxV;
-            this.velocityMaxSmoothed = maxV;
-            interpolator = linearInterpolator;
-        }
-
-        public void developForwardsFirst(VelocitySegment next, double startVel) {
-            velocityStartForwards = startVel;
-
-            double withTheGrainAccel = interpolator.getRealMaxAccel(velocityStartForwards, velocityMax, accel);
-
-            velocityEndForwards = Math.min(velocityMaxSmoothed,
-                    Math.sqrt(velocityStartForwards * velocityStartForwards + 2 * (distanceEnd - distanceStart) * withTheGrainAccel));
-
-            velocityEndForwards = Math.min(velocityEndForwards, next.velocityMaxSmoothed);
+    /**
+     * Smooths values by replacing every value (except the first and the last) with the average of the values
+     * up to tailSize away from it, if it's smaller. The averages are taken from prefix sums, so the result
+     * doesn't depend on the order in which the values are smoothed.
+     *
+     * @param values   the values to smooth
+     * @param smoothed the array to fill with the smoothed values, may not be values
+     * @param count    how many values to smooth
+     * @param tailSize how many values on each side are averaged with every value
+     */
+    static void smooth(double[] values, double[] smoothed, int count, int tailSize) {
+        if (count == 0)
+            return;
+        double[] prefixSums = new double[count + 1];
+        for (int i = 0; i < count; i++)
+            prefixSums[i + 1] = prefixSums[i] + values[i];
+
+        smoothed[0] = values[0];
+        smoothed[count - 1] = values[count - 1];
+        for (int i = 1; i < count - 1; i++) {
+            int start = Math.max(i - tailSize, 0);
+            int end = Math.min(i + tailSize, count - 1);
+            smoothed[i] = Math.min((prefixSums[end + 1] - prefixSums[start]) / (end - start + 1), values[i]);
         }
+    }
 
-        public void developForwardsLast(VelocitySegment prev) {
-            velocityStartForwards = prev.velocityEndForwards;
-
-            double withTheGrainAccel = interpolator.getRealMaxAccel(velocityStartForwards, velocityMax, accel);
-
-            velocityEndForwards = Math.min(velocityMaxSmoothed,
-                    Math.sqrt(velocityStartForwards * velocityStartForwards + 2 * (distanceEnd - distanceStart) * withTheGrainAccel));
-        }
-
-        public void developForwards(VelocitySegment prev, VelocitySegment next) {
-            velocityStartForwards = prev.velocityEndForwards;
-
-
-            double withTheGrainAccel = interpolator.getRealMaxAccel(velocityStartForwards, velocityMax, accel);
-
-            velocityEndForwards = Math.min(velocityMaxSmoothed,
-                    Math.sqrt(velocityStartForwards * velocityStartForwards + 2 * (distanceEnd - distanceStart) * withTheGrainAccel));
-
-            velocityEndForwards = Math.min(velocityEndForwards, next.velocityMaxSmoothed);
-        }
+    /**
+     * The forwards pass, accelerating as much as possible from the start velocity.
+     *
+     * @param velocityStart the velocity at the start of the path
+     */
+    private void developForwards(double velocityStart) {
+        double velocity = velocityStart;
+        for (int i = 0; i < segmentCount; i++) {
+            velocityStartForwards[i] = velocity;
 
-        public void developBackwardsFirst(VelocitySegment next) {
-            velocityEndBackwards = next.velocityStartBackwards;
+            double withTheGrainAccel = getMaxAcceleration(i, velocity);
 
-            double actAcc = interpolator.getRealMaxAccel(-velocityEndBackwards, velocityMax, accel);
+            velocity = Math.min(velocityMaxSmoothed[i],
+                    Math.sqrt(velocity * velocity + 2 * (distances[i + 1] - distances[i]) * withTheGrainAccel));
+            if (i + 1 < segmentCount)
+                velocity = Math.min(velocity, velocityMaxSmoothed[i + 1]);
 
-            velocityStartBackwards = Math.min(velocityMaxSmoothed,
-                    Math.sqrt(velocityEndBackwards * velocityEndBackwards + 2 * (distanceEnd - distanceStart) * actAcc));
+            velocityEndForwards[i] = velocity;
         }
+    }
 
-        public void developBackwardsLast(VelocitySegment prev, double endVel) {
-            velocityEndBackwards = endVel;
-
-            double actAcc = interpolator.getRealMaxAccel(-velocityEndBackwards, velocityMax, accel);
-
-            velocityStartBackwards = Math.min(velocityMaxSmoothed,
-                    Math.sqrt(velocityEndBackwards * velocityEndBackwards + 2 * (distanceEnd - distanceStart) * actAcc));
-            velocityStartBackwards = Math.min(velocityStartBackwards, prev.velocityMaxSmoothed);
+    /**
+     * The backwards pass over the first count segments, decelerating as much as possible into the
+     * given velocity. Used with count smaller than the amount of segments to redo the pass as if the
+     * segment at index count starts with the given velocity.
+     *
+     * @param count       how many segments to develop
+     * @param velocityEnd the velocity at the end of the last developed segment
+     */
+    void developBackwards(int count, double velocityEnd) {
+        double velocity = velocityEnd;
+        for (int i = count - 1; i >= 0; i--) {
+            velocityEndBackwards[i] = velocity;
+
+            double actAcc = getMaxAcceleration(i, -velocity);
+
+            velocity = Math.min(velocityMaxSmoothed[i],
+                    Math.sqrt(velocity * velocity + 2 * (distances[i + 1] - distances[i]) * actAcc));
+            if (i > 0)
+                velocity = Math.min(velocity, velocityMaxSmoothed[i - 1]);
+
+            velocityStartBackwards[i] = velocity;
         }
+    }
 
-        public void developBackwards(VelocitySegment prev, VelocitySegment next) {
-            velocityEndBackwards = next.velocityStartBackwards;
-
-            double actAcc = interpolator.getRealMaxAccel(-velocityEndBackwards, velocityMax, accel);
-
-            velocityStartBackwards = Math.min(velocityMaxSmoothed,
-                    Math.sqrt(velocityEndBackwards * velocityEndBackwards + 2 * (distanceEnd - distanceStart) * actAcc));
-            velocityStartBackwards = Math.min(velocityStartBackwards, prev.velocityMaxSmoothed);
-
-        }
+    /**
+     * @param index    the index of the segment
+     * @param velocity the current velocity, negated when decelerating
+     * @return the maximal acceleration by the interpolator and all constraints
+     */
+    private double getMaxAcceleration(int index, double velocity) {
+        double ret = interpolator.getRealMaxAccel(velocity, velocityMax[index], accel[index]);
+        for (TimingConstraint constraint : constraints)
+            ret = Math.min(ret, constraint.getMaxAcceleration(distances[index], track.getX(index), track.getY(index),
+                    curvature[index], velocity));
+        return ret;
+    }
 
-        public void filter(List<VelocitySegment> segs, int subject, int tailSize) {
-            int start = Math.max(subject - tailSize, 0);
-            int end = Math.min(subject + tailSize, segs.size() - 1);
-            double val;
-            if (latestFilterIndex != -1 && latestFilterTail == tailSize) {
+    private double getStartVelocity(int index) {
+        if (finishAsap)
+            return velocityStartForwards[index];
+        return Math.min(velocityStartForwards[index], velocityStartBackwards[index]);
+    }
 
-                val = latestFilterValue;
-                if (start != 0)
-                    val -= segs.get(start - 1).velocityMax;
-                if (subject + tailSize <= segs.size() - 1)
-                    val += segs.get(end).velocityMax;
+    private double getEndVelocity(int index) {
+        if (finishAsap)
+            return velocityEndForwards[index];
+        return Math.min(velocityEndForwards[index], velocityEndBackwards[index]);
+    }
 
-            } else {
+    public MotionProfile1D generateProfile(int index, double tStart) {
+        return new MotionProfile1D(generateSegment(index, tStart));
+    }
 
-                val = 0.0;
-                for (int i = start; i <= end; i++) {
-                    val += segs.get(i).velocityMax;
-                }
+    public MotionProfile1D.Segment generateSegment(int index, double tStart) {
+        double vS = getStartVelocity(index);
+        double vE = getEndVelocity(index);
 
-            }
-            latestFilterValue = val;
-            this.velocityMaxSmoothed = Math.min(val / (end - start + 1), this.velocityMax);
-        }
+        double dt = 2 * ((distances[index + 1] - distances[index]) / (vS + vE));
+        return new MotionProfile1D.Segment(
+                tStart, tStart + dt, (vE - vS) / dt, vS, distances[index]);
+    }
 
-        public double getStartVelocity() {
-            if (finishAsap)
-                return velocityStartForwards;
-            return Math.min(velocityStartForwards, velocityStartBackwards);
-        }
 
-        public double getEndVelocity() {
-            if (finishAsap)
-                return velocityEndForwards;
-            return Math.min(velocityEndForwards, velocityEndBackwards);
+    /**
+     * Used when this graph was made from only the beginning of a path. Finds up to which segment the generated
+     * segments are final, meaning the graph of any longer path that starts the same way generates them exactly
+     * the same.
+     * <p>
+     * The last tailSize + 1 segments can still change because of the smoothing and the forwards pass. Before them,
+     * only the backwards pass can change, depending on the velocity it brings from the rest of the path, which is
+     * always between 0 and maxVelocity. The backwards pass is monotonous in that velocity, so a segment is final
+     * when running it with both extremes gives the same segment.
+     *
+     * @param from        the first segment to check, all segments before it are assumed to be final
+     * @param tailSize    the smoothing tail size this graph was made with
+     * @param maxVelocity the maximal linear velocity this graph was made with
+     * @return the number of final segments, at least from
+     */
+    int getFinalSegmentCount(int from, int tailSize, double maxVelocity) {
+        int count = segmentCount - 1 - tailSize;
+        if (count <= from)
+            return from;
+        if (finishAsap)
+            return count;
+
+        double[] startVelocities = new double[count - from];
+        double[] endVelocities = new double[count - from];
+        developBackwards(count, 0);
+        for (int i = from; i < count; i++) {
+            startVelocities[i - from] = getStartVelocity(i);
+            endVelocities[i - from] = getEndVelocity(i);
         }
 
-        public void insertToCSV(CSVWrapper file) {
-            file.addValues(distanceStart, getStartVelocity(), accel);
+        developBackwards(count, maxVelocity);
+        for (int i = from; i < count; i++) {
+            if (startVelocities[i - from] != getStartVelocity(i)
+                    || endVelocities[i - from] != getEndVelocity(i))
+                return i;
         }
-
+        return count;
     }
 
+    public void generateCSV(String name) {
+        CSVWrapper file = CSVWrapper.generateWrapper(name, 0, "d", "velocity", "acceleration");
+        for (int i = 0; i < segmentCount; i++)
+            file.addValues(distances[i], getStartVelocity(i), accel[i]);
+        file.flush();
+    }
 
 }
@@ -0,0 +1,76 @@
+package org.greenblitz.motion.profiling;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the geometry of the sub-curves every waypoint pair was divided to, by a hash of the waypoints,
+ * the spline type, tForCurve, the jump and the curvature tolerance. Generating variants of the same routine
+ * (other velocity and acceleration limits, constraints, start time or end velocity) then skips splitting and
+ * sampling the splines, which is most of the generation time, and only redoes the velocity graph.
+ * <p>
+ * Unlike ProfileCache this is only kept in memory, and it helps whenever the path is the same even if the
+ * profile isn't. The most recently used geometries are kept.
+ *
+ * @see ProfilingOptions#setGeometryCache(GeometryCache)
+ */
+public class GeometryCache {
+
+    private final Map<String, PathGeometry> memory;
+
+    /**
+     * @param capacity how many waypoint pairs to remember
+     */
+    public GeometryCache(final int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity can't be negative");
+        memory = new LinkedHashMap<String, PathGeometry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PathGeometry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * The geometries kept are never changed, so every call returns a copy the caller may append to.
+     *
+     * @param key     the key of the waypoint pair
+     * @param divider divides the pair if it isn't cached
+     * @return a copy of the cached geometry, or of the divided one if there isn't one
+     */
+    PathGeometry getOrDivide(String key, Supplier<PathGeometry> divider) {
+        PathGeometry ret;
+        synchronized (memory) {
+            ret = memory.get(key);
+        }
+        if (ret == null) {
+            // Dividing the same pair twice from different threads is harmless, the result is the same
+            ret = divider.get();
+            synchronized (memory) {
+                memory.put(key, ret);
+            }
+        }
+        return new PathGeometry(ret.size()).append(ret);
+    }
+
+    /**
+     * @return how many waypoint pairs are remembered
+     */
+    public int size() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    /**
+     * Forgets all geometries.
+     */
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package org.greenblitz.motion.profiling;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * A profile which reads it's segments directly from the columns of a (usually memory mapped) buffer,
+ * as written by ProfileFile, without copying them.
+ * <p>
+ * The first change to the profile copies the segments to arrays, after which it acts like a regular profile.
+ * Package protected on purpose.
+ *
+ * @see ProfileFile
+ */
+class MappedMotionProfile1D extends MotionProfile1D {
+
+    /*
+     * null once the segments were copied to the arrays.
+     */
+    private DoubleBuffer tStartColumn, tEndColumn, accelColumn, startVelocityColumn, startLocationColumn;
+
+    /**
+     * @param buffer       the buffer with the columns
+     * @param offset       the offset in bytes of the first column in the buffer
+     * @param segmentCount the amount of segments, which is also the length of every column
+     */
+    MappedMotionProfile1D(ByteBuffer buffer, int offset, int segmentCount) {
+        super(1);
+        this.segmentCount = segmentCount;
+        int columnSize = segmentCount * Double.BYTES;
+        tStartColumn = column(buffer, offset, segmentCount);
+        tEndColumn = column(buffer, offset + columnSize, segmentCount);
+        accelColumn = column(buffer, offset + 2 * columnSize, segmentCount);
+        startVelocityColumn = column(buffer, offset + 3 * columnSize, segmentCount);
+        startLocationColumn = column(buffer, offset + 4 * columnSize, segmentCount);
+    }
+
+    private MappedMotionProfile1D(MappedMotionProfile1D other) {
+        super(1);
+        segmentCount = other.segmentCount;
+        tStartColumn = other.tStartColumn.duplicate();
+        tEndColumn = other.tEndColumn.duplicate();
+        accelColumn = other.accelColumn.duplicate();
+        startVelocityColumn = other.startVelocityColumn.duplicate();
+        startLocationColumn = other.startLocationColumn.duplicate();
+    }
+
+    private static DoubleBuffer column(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer ret = buffer.duplicate();
+        ret.position(offset);
+        ret.limit(offset + length * Double.BYTES);
+        return ret.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    /**
+     * @return whether the segments are still read from the buffer
+     */
+    boolean isMapped() {
+        return tStartColumn != null;
+    }
+
+    @Override
+    double tStartAt(int index) {
+        return tStartColumn != null ? tStartColumn.get(index) : super.tStartAt(index);
+    }
+
+    @Override
+    double tEndAt(int index) {
+        return tEndColumn != null ? tEndColumn.get(index) : super.tEndAt(index);
+    }
+
+    @Override
+    double accelAt(int index) {
+        return accelColumn != null ? accelColumn.get(index) : super.accelAt(index);
+    }
+
+    @Override
+    double startVelocityAt(int index) {
+        return startVelocityColumn != null ? startVelocityColumn.get(index) : super.startVelocityAt(index);
+    }
+
+    @Override
+    double startLocationAt(int index) {
+        return startLocationColumn != null ? startLocationColumn.get(index) : super.startLocationAt(index);
+    }
+
+    @Override
+    void prepareForWrite() {
+        if (tStartColumn == null)
+            return;
+        int capacity = Math.max(segmentCount, 1);
+        tStarts = new double[capacity];
+        tEnds = new double[capacity];
+        accels = new double[capacity];
+        startVelocities = new double[capacity];
+        startLocations = new double[capacity];
+        tStartColumn.duplicate().get(tStarts, 0, segmentCount);
+        tEndColumn.duplicate().get(tEnds, 0, segmentCount);
+        accelColumn.duplicate().get(accels, 0, segmentCount);
+        startVelocityColumn.duplicate().get(startVelocities, 0, segmentCount);
+        startLocationColumn.duplicate().get(startLocations, 0, segmentCount);
+        tStartColumn = tEndColumn = accelColumn = startVelocityColumn = startLocationColumn = null;
+    }
+
+    /**
+     * While mapped, the copy reads from the same buffer.
+     */
+    @Override
+    MotionProfile1D copy() {
+        if (tStartColumn == null)
+            return super.copy();
+        return new MappedMotionProfile1D(this);
+    }
+}
@@ -18,40 +18,73 @@ import java.util.List;
  */
 public class MotionProfile1D {
 
-    /**
-     * The segments that make up this profile
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /*
+     * The segments that make up this profile, stored as parallel arrays (segment i is made of the i'th
+     * element of each array). Only the first segmentCount elements are valid.
      */
-    protected List<Segment> segments;
+    protected double[] tStarts, tEnds, accels, startVelocities, startLocations;
+    protected int segmentCount;
+
+    /*
+     * Optional time index, see buildTimeIndex(). timeIndex[b] is the first segment that may contain a time
+     * in bucket b. null when not built or when the profile changed since it was built.
+     */
+    private int[] timeIndex;
+    private double timeIndexStart, timeIndexBucketsPerSecond;
 
     // Note, I didn't forget access modifiers, it's package protected on purpose. - Alexey
 
     MotionProfile1D(List<Segment> segs) {
-        segments = segs;
+        this(Math.max(segs.size(), DEFAULT_CAPACITY));
+        for (Segment s : segs)
+            unsafeAddSegment(s);
     }
 
     MotionProfile1D(Segment... segs) {
-        this();
-        segments.addAll(Arrays.asList(segs));
+        this(Math.max(segs.length, DEFAULT_CAPACITY), segs);
     }
 
     MotionProfile1D() {
-        this(new ArrayList<>());
+        this(DEFAULT_CAPACITY);
     }
 
     MotionProfile1D(int capacity, Segment... segs) {
         this(capacity);
-        segments.addAll(Arrays.asList(segs));
+        for (Segment s : segs)
+            unsafeAddSegment(s);
     }
 
     MotionProfile1D(int capacity) {
-        this(new ArrayList<>(capacity));
+        capacity = Math.max(capacity, 1);
+        tStarts = new double[capacity];
+        tEnds = new double[capacity];
+        accels = new double[capacity];
+        startVelocities = new double[capacity];
+        startLocations = new double[capacity];
+        segmentCount = 0;
+    }
+
+    /**
+     * @return A profile with the same segments as this one, which can be changed and used independently
+     */
+    MotionProfile1D copy() {
+        MotionProfile1D ret = new MotionProfile1D(segmentCount);
+        System.arraycopy(tStarts, 0, ret.tStarts, 0, segmentCount);
+        System.arraycopy(tEnds, 0, ret.tEnds, 0, segmentCount);
+        System.arraycopy(accels, 0, ret.accels, 0, segmentCount);
+        System.arraycopy(startVelocities, 0, ret.startVelocities, 0, segmentCount);
+        System.arraycopy(startLocations, 0, ret.startLocations, 0, segmentCount);
+        ret.segmentCount = segmentCount;
+        return ret;
     }
 
     @Override
     public String toString() {
         StringBuilder ret = new StringBuilder("MotionProfile1D{");
-        for (Segment s : segments)
-            ret.append("\n\t").append(s);
+        for (int i = 0; i < segmentCount; i++)
+            ret.append("\n\t").append(getSegment(i));
         return ret.toString();
     }
 
@@ -60,13 +93,31 @@ public class MotionProfile1D {
      * affect the original Profile
      */
     public List<Segment> getSegments() {
-        List<Segment> toRet = new ArrayList<>();
-        for (Segment seg : segments) {
-            toRet.add(seg.clone());
+        List<Segment> toRet = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            toRet.add(getSegment(i));
         }
         return toRet;
     }
 
+    /**
+     * @param index the index of the segment, between 0 and getSegmentCount() - 1
+     * @return A copy of the segment at that index. Changing it won't affect the original profile
+     * @throws IndexOutOfBoundsException if there is no segment with that index
+     */
+    public Segment getSegment(int index) {
+        if (index < 0 || index >= segmentCount)
+            throw new IndexOutOfBoundsException("No segment with index " + index);
+        return new Segment(tStartAt(index), tEndAt(index), accelAt(index), startVelocityAt(index), startLocationAt(index));
+    }
+
+    /**
+     * @return The amount of segments in this profile
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
     /**
      * Adds the given profile to this one, and if needed generates a in-between profile to bridge a potential gap.
      *
@@ -103,14 +154,7 @@ public class MotionProfile1D {
             throw new ProfilingException("Velocities not equal");
         }
 
-        List<Segment> secondSegs = second.getSegments();
-
-        for (Segment s : secondSegs) {
-            s.setTStart(s.getTStart() + getTEnd());
-            s.setTEnd(s.getTEnd() + getTEnd());
-        }
-
-        segments.addAll(secondSegs);
+        appendShifted(second, getTEnd());
     }
 
     /**
@@ -119,16 +163,106 @@ public class MotionProfile1D {
      * @param second
      */
     public void unsafeAdd(MotionProfile1D second) {
-        segments.addAll(second.getSegments());
+        appendShifted(second, 0);
     }
 
     /**
      * Directly adds the given segment to the profile. Use with care.
+     * <p>
+     * The values of the segment are copied, so changing the segment after adding it won't affect the profile.
      *
      * @param seg
      */
     public void unsafeAddSegment(MotionProfile1D.Segment seg) {
-        segments.add(seg);
+        addSegment(seg.tStart, seg.tEnd, seg.accel, seg.startVelocity, seg.startLocation);
+    }
+
+    /**
+     * Directly adds a segment with the given values to the profile, without creating a segment object.
+     * Package protected on purpose.
+     */
+    void addSegment(double tStart, double tEnd, double accel, double startVelocity, double startLocation) {
+        prepareForWrite();
+        ensureCapacity(segmentCount + 1);
+        tStarts[segmentCount] = tStart;
+        tEnds[segmentCount] = tEnd;
+        accels[segmentCount] = accel;
+        startVelocities[segmentCount] = startVelocity;
+        startLocations[segmentCount] = startLocation;
+        segmentCount++;
+        timeIndex = null;
+    }
+
+    /**
+     * Removes all segments, keeping the arrays so the profile can be refilled without allocating.
+     * Package protected on purpose.
+     */
+    void clear() {
+        segmentCount = 0;
+        prepareForWrite();
+        previous = 0;
+        timeIndex = null;
+    }
+
+    private void appendShifted(MotionProfile1D second, double timeShift) {
+        int count = second.segmentCount;
+        prepareForWrite();
+        ensureCapacity(segmentCount + count);
+        for (int i = 0; i < count; i++) {
+            tStarts[segmentCount + i] = second.tStartAt(i) + timeShift;
+            tEnds[segmentCount + i] = second.tEndAt(i) + timeShift;
+            accels[segmentCount + i] = second.accelAt(i);
+            startVelocities[segmentCount + i] = second.startVelocityAt(i);
+            startLocations[segmentCount + i] = second.startLocationAt(i);
+        }
+        segmentCount += count;
+        timeIndex = null;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= tStarts.length)
+            return;
+        int newCapacity = Math.max(capacity, tStarts.length + (tStarts.length >> 1));
+        tStarts = Arrays.copyOf(tStarts, newCapacity);
+        tEnds = Arrays.copyOf(tEnds, newCapacity);
+        accels = Arrays.copyOf(accels, newCapacity);
+        startVelocities = Arrays.copyOf(startVelocities, newCapacity);
+        startLocations = Arrays.copyOf(startLocations, newCapacity);
+    }
+
+    /*
+     * All reads of the segments go through these, so subclasses can store them elsewhere
+     * (see MappedMotionProfile1D). Changing the arrays must be preceded by prepareForWrite().
+     */
+
+    double tStartAt(int index) {
+        return tStarts[index];
+    }
+
+    double tEndAt(int index) {
+        return tEnds[index];
+    }
+
+    double accelAt(int index) {
+        return accels[index];
+    }
+
+    double startVelocityAt(int index) {
+        return startVelocities[index];
+    }
+
+    double startLocationAt(int index) {
+        return startLocations[index];
+    }
+
+    /**
+     * Called before the segment arrays are changed. Does nothing here.
+     */
+    void prepareForWrite() {
+    }
+
+    boolean isTimePartOfSegment(int index, double t) {
+        return t - tStartAt(index) >= -Segment.EPSILON && t - tEndAt(index) <= Segment.EPSILON;
     }
 
     private int previous = 0;
@@ -142,16 +276,116 @@ public class MotionProfile1D {
      * Therefore, this is O(1) average time.
      *
      * @param t point in time (in seconds)
-     * @return The segment matching that point of time
+     * @return A copy of the segment matching that point of time
      * @throws IndexOutOfBoundsException if the current time doesn't apply to any segment.
      * @see MotionProfile1D#getSegmentRandom(double)
      */
     public Segment quickGetSegment(double t) {
-        for (int i = 0; i < segments.size(); i++) {
-            if (segments.get((previous + i) % segments.size()).isTimePartOfSegment(t)) {
-                previous = (i + previous) % segments.size();
-                return segments.get(previous);
+        return getSegment(quickGetSegmentIndex(t));
+    }
+
+    /**
+     * Same as quickGetSegment, but returns the index of the segment instead of a copy of it.
+     *
+     * @param t point in time (in seconds)
+     * @return The index of the segment matching that point of time
+     * @throws IndexOutOfBoundsException if the current time doesn't apply to any segment.
+     * @see MotionProfile1D#quickGetSegment(double)
+     */
+    public int quickGetSegmentIndex(double t) {
+        if (segmentCount == 0)
+            throw new IndexOutOfBoundsException("No segment with time " + t);
+        int index = previous < segmentCount ? previous : 0;
+        if (isTimePartOfSegment(index, t))
+            return index;
+        if (index + 1 < segmentCount && isTimePartOfSegment(index + 1, t)) {
+            previous = index + 1;
+            return previous;
+        }
+        if (timeIndex != null) {
+            previous = getSegmentIndexBucketed(t);
+            return previous;
+        }
+        for (int i = 0; i < segmentCount; i++) {
+            if (isTimePartOfSegment(index, t)) {
+                previous = index;
+                return index;
             }
+            index++;
+            if (index == segmentCount)
+                index = 0;
+        }
+        throw new IndexOutOfBoundsException("No segment with time " + t);
+    }
+
+    /**
+     * Builds a time index with one bucket per segment.
+     *
+     * @see MotionProfile1D#buildTimeIndex(int)
+     */
+    public void buildTimeIndex() {
+        buildTimeIndex(segmentCount);
+    }
+
+    /**
+     * Splits the time range of the profile to equal buckets and remembers for each bucket the first segment
+     * that could contain a time in it. After this is called, any lookup (including going back in time, which
+     * quickGetSegment is bad at) costs O(1) as long as the segments are spread roughly evenly in time.
+     * <p>
+     * Call this once the profile is complete, adding segments afterwards discards the index.
+     *
+     * @param bucketCount the amount of buckets, the more the faster the lookups. One per segment is a good choice.
+     * @see MotionProfile1D#getSegmentIndexBucketed(double)
+     */
+    public void buildTimeIndex(int bucketCount) {
+        if (segmentCount == 0 || bucketCount <= 0) {
+            timeIndex = null;
+            return;
+        }
+        double start = tStartAt(0);
+        double duration = getTEnd() - start;
+        int[] index = new int[bucketCount];
+        double bucketWidth = duration / bucketCount;
+        int seg = 0;
+        for (int b = 0; b < bucketCount; b++) {
+            double bucketStart = start + b * bucketWidth;
+            while (seg < segmentCount - 1 && tEndAt(seg) + Segment.EPSILON < bucketStart)
+                seg++;
+            index[b] = seg;
+        }
+        timeIndexStart = start;
+        timeIndexBucketsPerSecond = duration > 0 ? bucketCount / duration : 0;
+        timeIndex = index;
+    }
+
+    /**
+     * @return whether a time index is currently built for this profile
+     * @see MotionProfile1D#buildTimeIndex(int)
+     */
+    public boolean hasTimeIndex() {
+        return timeIndex != null;
+    }
+
+    /**
+     * Uses the time index to find the segment. If the index wasn't built, falls back to binary searching.
+     *
+     * @param t point in time (in seconds)
+     * @return The index of the segment matching that point of time
+     * @throws IndexOutOfBoundsException if the current time doesn't apply to any segment.
+     * @see MotionProfile1D#buildTimeIndex(int)
+     */
+    public int getSegmentIndexBucketed(double t) {
+        int[] index = timeIndex;
+        if (index == null)
+            return getSegmentIndexRandom(t);
+        int bucket = (int) ((t - timeIndexStart) * timeIndexBucketsPerSecond);
+        if (bucket < 0)
+            bucket = 0;
+        else if (bucket >= index.length)
+            bucket = index.length - 1;
+        for (int i = index[bucket]; i < segmentCount && tStartAt(i) - Segment.EPSILON <= t; i++) {
+            if (t - tEndAt(i) <= Segment.EPSILON)
+                return i;
         }
         throw new IndexOutOfBoundsException("No segment with time " + t);
     }
@@ -160,40 +394,53 @@ public class MotionProfile1D {
      * Uses binary searching. before using this,
      *
      * @param t point in time (in seconds)
-     * @return The segment matching that point of time
+     * @return A copy of the segment matching that point of time
      * @throws IndexOutOfBoundsException if the current time doesn't apply to any segment.
      * @see MotionProfile1D#quickGetSegment(double)
      * <p>
-     * This runs in average time of O(n log n)
+     * This runs in O(log n)
      */
     public Segment getSegmentRandom(double t) {
+        return getSegment(getSegmentIndexRandom(t));
+    }
+
+    /**
+     * Same as getSegmentRandom, but returns the index of the segment instead of a copy of it.
+     *
+     * @param t point in time (in seconds)
+     * @return The index of the segment matching that point of time
+     * @throws IndexOutOfBoundsException if the current time doesn't apply to any segment.
+     * @see MotionProfile1D#getSegmentRandom(double)
+     */
+    public int getSegmentIndexRandom(double t) {
         int lower = 0;
-        int upper = segments.size() - 1;
+        int upper = segmentCount - 1;
         int testing;
-        while (true) {
+        while (lower <= upper) {
             if (lower == upper)
-                if (segments.get(lower).isTimePartOfSegment(t))
-                    return segments.get(lower);
+                if (isTimePartOfSegment(lower, t))
+                    return lower;
                 else
-                    throw new IndexOutOfBoundsException("No segment with such time");
+                    break;
 
             testing = (lower + upper) / 2;
-            if (segments.get(testing).isTimePartOfSegment(t))
-                return segments.get(testing);
-            if (segments.get(testing).tStart > t)
+            if (isTimePartOfSegment(testing, t))
+                return testing;
+            if (tStartAt(testing) > t)
                 upper = testing - 1;
             else
                 lower = testing + 1;
         }
+        throw new IndexOutOfBoundsException("No segment with such time");
     }
 
     /**
      * @return The time in which the profile finishes
      */
     public double getTEnd() {
-        if (segments.isEmpty())
+        if (segmentCount == 0)
             return 0;
-        return segments.get(segments.size() - 1).tEnd;
+        return tEndAt(segmentCount - 1);
     }
 
     /**
@@ -209,7 +456,7 @@ public class MotionProfile1D {
      * @return the acceleration at that time
      */
     public double getAcceleration(double t) {
-        return quickGetSegment(t).getAcceleration(t);
+        return getAccelerationAt(quickGetSegmentIndex(t), t);
     }
 
     /**
@@ -217,7 +464,7 @@ public class MotionProfile1D {
      * @return the velocity at that time
      */
     public double getVelocity(double t) {
-        return quickGetSegment(t).getVelocity(t);
+        return getVelocityAt(quickGetSegmentIndex(t), t);
     }
 
     /**
@@ -225,29 +472,217 @@ public class MotionProfile1D {
      * @return the location at that time
      */
     public double getLocation(double t) {
-        return quickGetSegment(t).getLocation(t);
+        return getLocationAt(quickGetSegmentIndex(t), t);
+    }
+
+    /**
+     * Lets you look up the segment once and then get all the values you need from it.
+     * The time isn't checked against the segment.
+     *
+     * @param index the index of the segment, as returned from quickGetSegmentIndex
+     * @param t     point in time (in seconds)
+     * @return the acceleration at that time
+     * @see MotionProfile1D#quickGetSegmentIndex(double)
+     */
+    public double getAccelerationAt(int index, double t) {
+        return accelAt(index);
+    }
+
+    /**
+     * @param index the index of the segment, as returned from quickGetSegmentIndex
+     * @param t     point in time (in seconds)
+     * @return the velocity at that time
+     * @see MotionProfile1D#getAccelerationAt(int, double)
+     */
+    public double getVelocityAt(int index, double t) {
+        return startVelocityAt(index) + (t - tStartAt(index)) * accelAt(index);
+    }
+
+    /**
+     * @param index the index of the segment, as returned from quickGetSegmentIndex
+     * @param t     point in time (in seconds)
+     * @return the location at that time
+     * @see MotionProfile1D#getAccelerationAt(int, double)
+     */
+    public double getLocationAt(int index, double t) {
+        double timePassed = t - tStartAt(index);
+        return startLocationAt(index) + timePassed * startVelocityAt(index) + 0.5 * timePassed * timePassed * accelAt(index);
     }
 
     /**
      * Removes all segments with time length less then a milisecond.
      */
     public void removeBugSegments() {
-        double tStart = segments.get(0).getTStart();
-        List<Segment> goodSegments = new ArrayList<>();
-        for (Segment s : segments) {
-            if (Math.abs(s.tEnd - s.tStart) > 0)
-                goodSegments.add(s);
+        prepareForWrite();
+        double tStart = tStarts[0];
+        int good = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            if (Math.abs(tEnds[i] - tStarts[i]) > 0) {
+                tStarts[good] = tStarts[i];
+                tEnds[good] = tEnds[i];
+                accels[good] = accels[i];
+                startVelocities[good] = startVelocities[i];
+                startLocations[good] = startLocations[i];
+                good++;
+            }
+        }
+        if (good != 0) {
+            tStarts[0] = tStart;
+            for (int i = 1; i < good; i++)
+                tStarts[i] = tEnds[i - 1];
+        }
+        segmentCount = good;
+        previous = 0;
+        timeIndex = null;
+    }
+
+    /**
+     * Merges runs of adjacent segments into single segments wherever one segment stays within the given
+     * tolerances of the whole run, which makes the profile smaller and faster to look up.
+     * Segments with no time length are removed first, see removeBugSegments().
+     * <p>
+     * A merged segment starts with the velocity and location of the first segment of it's run and ends with
+     * the velocity of the last one, so the velocity stays continuous while the location may jump by up to
+     * the location tolerance between runs.
+     *
+     * @param velocityTolerance the maximal velocity error allowed at any point in time
+     * @param locationTolerance the maximal location error allowed at any point in time
+     * @return the maximal velocity error and the maximal location error actually introduced, in that order
+     */
+    public double[] compact(double velocityTolerance, double locationTolerance) {
+        return compact(this, null, velocityTolerance, locationTolerance);
+    }
+
+    /**
+     * Compacts one profile, or two profiles while keeping their segment times shared if they are
+     * (a run is then only merged if it can be merged in both profiles).
+     * Package protected on purpose.
+     *
+     * @param first             the profile to compact
+     * @param second            the other profile to compact, or null
+     * @param velocityTolerance the maximal velocity error allowed at any point in time
+     * @param locationTolerance the maximal location error allowed at any point in time
+     * @return the maximal velocity error and the maximal location error introduced in both profiles
+     * @see MotionProfile1D#compact(double, double)
+     */
+    static double[] compact(MotionProfile1D first, MotionProfile1D second,
+                            double velocityTolerance, double locationTolerance) {
+        if (velocityTolerance < 0 || locationTolerance < 0)
+            throw new IllegalArgumentException("Tolerances can't be negative");
+        boolean indexed = first.hasTimeIndex();
+        first.removeBugSegments();
+        if (second != null) {
+            second.removeBugSegments();
+            if (!first.hasSameSegmentTimes(second)) {
+                double[] firstError = compact(first, null, velocityTolerance, locationTolerance);
+                double[] secondError = compact(second, null, velocityTolerance, locationTolerance);
+                return new double[]{Math.max(firstError[0], secondError[0]), Math.max(firstError[1], secondError[1])};
+            }
+        }
+
+        double[] ret = new double[2];
+        double[] error = new double[2];
+        double[] secondError = new double[2];
+        int count = first.segmentCount;
+        int merged = 0;
+        for (int runStart = 0; runStart < count; ) {
+            int runEnd = runStart;
+            double velocityError = 0, locationError = 0;
+            while (runEnd + 1 < count) {
+                first.measureRun(runStart, runEnd + 1, error);
+                if (second != null) {
+                    second.measureRun(runStart, runEnd + 1, secondError);
+                    error[0] = Math.max(error[0], secondError[0]);
+                    error[1] = Math.max(error[1], secondError[1]);
+                }
+                if (error[0] > velocityTolerance || error[1] > locationTolerance)
+                    break;
+                velocityError = error[0];
+                locationError = error[1];
+                runEnd++;
+            }
+            first.mergeRun(runStart, runEnd, merged);
+            if (second != null)
+                second.mergeRun(runStart, runEnd, merged);
+            ret[0] = Math.max(ret[0], velocityError);
+            ret[1] = Math.max(ret[1], locationError);
+            merged++;
+            runStart = runEnd + 1;
+        }
+        first.segmentCount = merged;
+        if (second != null)
+            second.segmentCount = merged;
+        if (indexed) {
+            first.buildTimeIndex();
+            if (second != null)
+                second.buildTimeIndex();
         }
-        if (goodSegments.size() != 0) {
-            goodSegments.get(0).setTStart(tStart);
-            for (int i = 1; i < goodSegments.size(); i++)
-                goodSegments.get(i).setTStart(goodSegments.get(i - 1).getTEnd());
+        return ret;
+    }
+
+    private boolean hasSameSegmentTimes(MotionProfile1D other) {
+        if (segmentCount != other.segmentCount)
+            return false;
+        for (int i = 0; i < segmentCount; i++)
+            if (!Point.isFuzzyEqual(tEnds[i], other.tEnds[i], 1E-9))
+                return false;
+        return true;
+    }
+
+    /*
+     * The acceleration of a single segment going from the start of segment from to the end of segment to.
+     */
+    private double runAcceleration(int from, int to) {
+        double endVelocity = startVelocities[to] + accels[to] * (tEnds[to] - tStarts[to]);
+        return (endVelocity - startVelocities[from]) / (tEnds[to] - tStarts[from]);
+    }
+
+    /*
+     * Fills out with the maximal velocity and location errors of replacing segments from to to with a single segment.
+     * Both errors are exact: the velocity error is linear in every segment and the location error is quadratic,
+     * so it's checked at the edges of every segment and at it's extremum.
+     */
+    private void measureRun(int from, int to, double[] out) {
+        double t0 = tStarts[from], v0 = startVelocities[from], x0 = startLocations[from];
+        double accel = runAcceleration(from, to);
+        double velocityError = 0, locationError = 0;
+        for (int i = from; i <= to; i++) {
+            double timePassed = tStarts[i] - t0;
+            double length = tEnds[i] - tStarts[i];
+            double accelDiff = accel - accels[i];
+            double velocityDiff = v0 + accel * timePassed - startVelocities[i];
+            double locationDiff = x0 + v0 * timePassed + 0.5 * accel * timePassed * timePassed - startLocations[i];
+
+            velocityError = Math.max(velocityError, Math.max(Math.abs(velocityDiff),
+                    Math.abs(velocityDiff + accelDiff * length)));
+            locationError = Math.max(locationError, Math.max(Math.abs(locationDiff),
+                    Math.abs(locationDiff + velocityDiff * length + 0.5 * accelDiff * length * length)));
+            if (accelDiff != 0) {
+                double extremum = -velocityDiff / accelDiff;
+                if (extremum > 0 && extremum < length)
+                    locationError = Math.max(locationError,
+                            Math.abs(locationDiff + 0.5 * velocityDiff * extremum));
+            }
         }
-        segments = goodSegments;
+        out[0] = velocityError;
+        out[1] = locationError;
+    }
+
+    /*
+     * Replaces segments from to to with a single segment at index into (which is at most from).
+     */
+    private void mergeRun(int from, int to, int into) {
+        double accel = from == to ? accels[from] : runAcceleration(from, to);
+        tStarts[into] = tStarts[from];
+        tEnds[into] = tEnds[to];
+        accels[into] = accel;
+        startVelocities[into] = startVelocities[from];
+        startLocations[into] = startLocations[from];
     }
 
     /**
      * creates a CSV file holding the current path.
+     * To store the profile itself (and not samples of it), use ProfileFile.
      *
      * @param name name of the file
      * @param dt   time in between points
@@ -24,6 +24,24 @@ public class MotionProfile2D {
         this.secondProfile = secondProfile;
     }
 
+    MotionProfile1D getFirstProfile() {
+        return firstProfile;
+    }
+
+    MotionProfile1D getSecondProfile() {
+        return secondProfile;
+    }
+
+    /**
+     * @return A profile with the same segments as this one, which can be followed independently
+     */
+    MotionProfile2D copy() {
+        MotionProfile2D ret = new MotionProfile2D(firstProfile.copy(), secondProfile.copy());
+        if (firstProfile.hasTimeIndex())
+            ret.buildTimeIndex();
+        return ret;
+    }
+
     /**
      * @return The time in which the profile finishes
      */
@@ -63,6 +81,30 @@ public class MotionProfile2D {
         return new Vector2D(firstProfile.getLocation(t), secondProfile.getLocation(t));
     }
 
+    /**
+     * Fills the location, velocity and acceleration of both profiles at the given time into out, looking up each
+     * profile's segment only once and without allocating anything.
+     *
+     * @param t   point in time (in seconds)
+     * @param out the sample to fill
+     * @return out
+     */
+    public ProfileSample sample(double t, ProfileSample out) {
+        int first = firstProfile.quickGetSegmentIndex(t);
+        // Most profiles (e.g. the ones from ChassisProfiler2D) share segment times, so try the same index first
+        int second = first < secondProfile.getSegmentCount() && secondProfile.isTimePartOfSegment(first, t) ?
+                first : secondProfile.quickGetSegmentIndex(t);
+
+        out.time = t;
+        out.firstLocation = firstProfile.getLocationAt(first, t);
+        out.firstVelocity = firstProfile.getVelocityAt(first, t);
+        out.firstAcceleration = firstProfile.getAccelerationAt(first, t);
+        out.secondLocation = secondProfile.getLocationAt(second, t);
+        out.secondVelocity = secondProfile.getVelocityAt(second, t);
+        out.secondAcceleration = secondProfile.getAccelerationAt(second, t);
+        return out;
+    }
+
     /**
      * For testing purposes only! Don't use otherwise
      * Package protected in purpose.
@@ -97,6 +139,16 @@ public class MotionProfile2D {
         return ret;
     }
 
+    /**
+     * Builds the time index of both profiles.
+     *
+     * @see MotionProfile1D#buildTimeIndex()
+     */
+    public void buildTimeIndex() {
+        firstProfile.buildTimeIndex();
+        secondProfile.buildTimeIndex();
+    }
+
     /**
      * Removes all segments with time length less then a milisecond.
      *
@@ -107,6 +159,19 @@ public class MotionProfile2D {
         secondProfile.removeBugSegments();
     }
 
+    /**
+     * Compacts both profiles. If they share their segment times (as the ones from ChassisProfiler2D do),
+     * they still share them afterwards: a run of segments is only merged if it can be merged in both.
+     *
+     * @param velocityTolerance the maximal velocity error allowed at any point in time, in both profiles
+     * @param locationTolerance the maximal location error allowed at any point in time, in both profiles
+     * @return the maximal velocity error and the maximal location error actually introduced, in that order
+     * @see MotionProfile1D#compact(double, double)
+     */
+    public double[] compact(double velocityTolerance, double locationTolerance) {
+        return MotionProfile1D.compact(firstProfile, secondProfile, velocityTolerance, locationTolerance);
+    }
+
     @Override
     public String toString() {
         return "MotionProfile2D{" +
@@ -0,0 +1,192 @@
+package org.greenblitz.motion.profiling;
+
+import org.greenblitz.motion.profiling.curve.ICurve;
+
+import java.util.Arrays;
+
+/**
+ * The geometry the velocity graphs need from a path that was divided to sub-curves: the length of every
+ * sub-curve, its curvature at the start, middle and end and the location of its middle. Stored as parallel arrays (sub-curve i is made of
+ * the i'th element of each array), so it is cheap to build in pieces and concatenate.
+ * <p>
+ * Package protected on purpose.
+ */
+class PathGeometry {
+
+    protected double[] lengths;
+    protected double[] curvatureStart, curvatureMiddle, curvatureEnd;
+    protected double[] middleX, middleY;
+    protected int size;
+
+    PathGeometry(int capacity) {
+        capacity = Math.max(capacity, 1);
+        lengths = new double[capacity];
+        curvatureStart = new double[capacity];
+        curvatureMiddle = new double[capacity];
+        curvatureEnd = new double[capacity];
+        middleX = new double[capacity];
+        middleY = new double[capacity];
+        size = 0;
+    }
+
+    /**
+     * Adds the sub-curves of source between every two consecutive boundaries, the same as adding
+     * source.getSubCurve(boundaries[i], boundaries[i + 1]) for each i, without creating them.
+     * The source is evaluated once at every boundary and middle, in a single batch, so the end of a sub-curve
+     * isn't evaluated again as the start of the next one.
+     *
+     * @param source     the curve to take the sub-curves of
+     * @param boundaries where the sub-curves start and end, increasing
+     * @param count      how many of the boundaries to use, so count - 1 sub-curves are added
+     * @see ICurve#evaluate(double[], double[], double[], double[])
+     */
+    void add(ICurve source, double[] boundaries, int count) {
+        add(source, boundaries, null, null, count);
+    }
+
+    /**
+     * Same as add(source, boundaries, count), with curvatures the caller already calculated. Only the middles
+     * are evaluated in a batch, for their locations, and only the curvatures which are NaN are calculated.
+     *
+     * @param curvatures       the curvature of source at every boundary, or NaN where it isn't known. The unknown
+     *                         ones are filled in. null to evaluate them all in the batch.
+     * @param middleCurvatures the curvature of source in the middle of the sub-curve starting at every boundary,
+     *                         or NaN where it isn't known. The unknown ones are filled in.
+     */
+    void add(ICurve source, double[] boundaries, double[] curvatures, double[] middleCurvatures, int count) {
+        if (count < 2)
+            return;
+        if (curvatures != null) {
+            addKnownCurvatures(source, boundaries, curvatures, middleCurvatures, count);
+            return;
+        }
+        int samples = 2 * count - 1;
+        double[] u = new double[samples];
+        for (int i = 0; i < count - 1; i++) {
+            u[2 * i] = boundaries[i];
+            u[2 * i + 1] = 0.5 * (boundaries[i] + boundaries[i + 1]);
+        }
+        u[samples - 1] = boundaries[count - 1];
+        double[] x = new double[samples], y = new double[samples], curvature = new double[samples];
+        source.evaluate(u, x, y, curvature);
+
+        ensureCapacity(size + count - 1);
+        for (int i = 0; i < count - 1; i++) {
+            lengths[size] = source.getLength(boundaries[i], boundaries[i + 1]);
+            curvatureStart[size] = curvature[2 * i];
+            curvatureMiddle[size] = curvature[2 * i + 1];
+            curvatureEnd[size] = curvature[2 * i + 2];
+            middleX[size] = x[2 * i + 1];
+            middleY[size] = y[2 * i + 1];
+            size++;
+        }
+    }
+
+    private void addKnownCurvatures(ICurve source, double[] boundaries, double[] curvatures,
+                                    double[] middleCurvatures, int count) {
+        double[] u = new double[count - 1];
+        for (int i = 0; i < count - 1; i++)
+            u[i] = 0.5 * (boundaries[i] + boundaries[i + 1]);
+        double[] x = new double[count - 1], y = new double[count - 1];
+        source.evaluate(u, x, y, null);
+
+        for (int i = 0; i < count; i++) {
+            if (Double.isNaN(curvatures[i]))
+                curvatures[i] = source.getCurvature(boundaries[i]);
+        }
+        ensureCapacity(size + count - 1);
+        for (int i = 0; i < count - 1; i++) {
+            lengths[size] = source.getLength(boundaries[i], boundaries[i + 1]);
+            curvatureStart[size] = curvatures[i];
+            curvatureMiddle[size] = Double.isNaN(middleCurvatures[i])
+                    ? source.getCurvature(u[i]) : middleCurvatures[i];
+            curvatureEnd[size] = curvatures[i + 1];
+            middleX[size] = x[i];
+            middleY[size] = y[i];
+            size++;
+        }
+    }
+
+    void add(double length, double startCurvature, double middleCurvature, double endCurvature,
+             double x, double y) {
+        ensureCapacity(size + 1);
+        lengths[size] = length;
+        curvatureStart[size] = startCurvature;
+        curvatureMiddle[size] = middleCurvature;
+        curvatureEnd[size] = endCurvature;
+        middleX[size] = x;
+        middleY[size] = y;
+        size++;
+    }
+
+    /**
+     * Adds all sub-curves of other after the sub-curves of this.
+     *
+     * @param other
+     * @return this
+     */
+    PathGeometry append(PathGeometry other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.lengths, 0, lengths, size, other.size);
+        System.arraycopy(other.curvatureStart, 0, curvatureStart, size, other.size);
+        System.arraycopy(other.curvatureMiddle, 0, curvatureMiddle, size, other.size);
+        System.arraycopy(other.curvatureEnd, 0, curvatureEnd, size, other.size);
+        System.arraycopy(other.middleX, 0, middleX, size, other.size);
+        System.arraycopy(other.middleY, 0, middleY, size, other.size);
+        size += other.size;
+        return this;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= lengths.length)
+            return;
+        int newCapacity = Math.max(capacity, lengths.length + (lengths.length >> 1));
+        lengths = Arrays.copyOf(lengths, newCapacity);
+        curvatureStart = Arrays.copyOf(curvatureStart, newCapacity);
+        curvatureMiddle = Arrays.copyOf(curvatureMiddle, newCapacity);
+        curvatureEnd = Arrays.copyOf(curvatureEnd, newCapacity);
+        middleX = Arrays.copyOf(middleX, newCapacity);
+        middleY = Arrays.copyOf(middleY, newCapacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    double getLength(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * @param index
+     * @return The general curvature of the sub-curve, the same as ICurve#getCurvature() of AbstractCurve
+     */
+    double getCurvature(int index) {
+        return (curvatureStart[index] + curvatureMiddle[index] + curvatureEnd[index]) / 3.0;
+    }
+
+    double getCurvatureStart(int index) {
+        return curvatureStart[index];
+    }
+
+    double getCurvatureEnd(int index) {
+        return curvatureEnd[index];
+    }
+
+    /**
+     * @param index
+     * @return The x coordinate of the middle of the sub-curve
+     */
+    double getX(int index) {
+        return middleX[index];
+    }
+
+    /**
+     * @param index
+     * @return The y coordinate of the middle of the sub-curve
+     */
+    double getY(int index) {
+        return middleY[index];
+    }
+
+}
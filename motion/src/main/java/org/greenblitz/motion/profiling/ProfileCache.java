@@ -0,0 +1,311 @@
+package org.greenblitz.motion.profiling;
+
+import org.greenblitz.motion.base.State;
+import org.greenblitz.motion.profiling.constraints.TimingConstraint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Remembers generated profiles by a hash of everything they were generated from, so the same routines
+ * aren't regenerated at every boot. The most recently used profiles are kept in memory and, if a directory
+ * is given, every profile is also saved to a file named after it's key (see ProfileFile), and profiles
+ * read from there are used directly from the memory mapped file.
+ * <p>
+ * Every profile this returns is a copy, so profiles returned for the same key can be followed at the same time.
+ * Reading and writing files is best effort: a file that can't be read is treated as missing.
+ *
+ * @see ProfilingOptions#setProfileCache(ProfileCache)
+ */
+public class ProfileCache {
+
+    /**
+     * Part of every key. Must be changed whenever a change to the generators changes the profiles they generate,
+     * so profiles saved by older versions won't be used.
+     */
+    public static final int GENERATOR_VERSION = 6;
+
+    private static final String FILE_SUFFIX = ".profile";
+
+    private final File directory;
+    private final Map<String, MotionProfile2D> memory;
+
+    /**
+     * A cache which is only kept in memory.
+     *
+     * @param memoryCapacity how many profiles to keep in memory
+     */
+    public ProfileCache(int memoryCapacity) {
+        this(memoryCapacity, null);
+    }
+
+    /**
+     * @param memoryCapacity how many profiles to keep in memory
+     * @param directory      the directory to save the profiles in, or null to only keep them in memory
+     */
+    public ProfileCache(final int memoryCapacity, File directory) {
+        if (memoryCapacity < 0)
+            throw new IllegalArgumentException("memory capacity can't be negative");
+        this.directory = directory;
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs())
+            throw new IllegalArgumentException("Can't create the cache directory " + directory);
+        memory = new LinkedHashMap<String, MotionProfile2D>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MotionProfile2D> eldest) {
+                return size() > memoryCapacity;
+            }
+        };
+    }
+
+    /**
+     * @param key       the key of the profile
+     * @param generator generates the profile if it isn't cached
+     * @return the cached profile, or the generated one if there isn't one
+     */
+    public MotionProfile2D getOrGenerate(String key, Supplier<? extends MotionProfile2D> generator) {
+        MotionProfile2D ret = get(key);
+        if (ret != null)
+            return ret;
+        ret = generator.get();
+        put(key, ret);
+        return ret;
+    }
+
+    /**
+     * @param key the key of the profile
+     * @return a copy of the cached profile, or null if there isn't one
+     */
+    public MotionProfile2D get(String key) {
+        MotionProfile2D ret;
+        synchronized (memory) {
+            ret = memory.get(key);
+        }
+        if (ret == null && directory != null) {
+            ret = readFile(getFile(key));
+            if (ret == null)
+                return null;
+            synchronized (memory) {
+                memory.put(key, ret);
+            }
+        }
+        return ret == null ? null : ret.copy();
+    }
+
+    /**
+     * Caches a copy of the profile, so changing the given profile afterwards won't affect the cache.
+     *
+     * @param key     the key of the profile
+     * @param profile the profile
+     */
+    public void put(String key, MotionProfile2D profile) {
+        MotionProfile2D copy = profile.copy();
+        synchronized (memory) {
+            memory.put(key, copy);
+        }
+        if (directory != null)
+            writeFile(getFile(key), copy);
+    }
+
+    /**
+     * Forgets all profiles kept in memory. The saved files are kept.
+     */
+    public void clearMemory() {
+        synchronized (memory) {
+            memory.clear();
+        }
+    }
+
+    /**
+     * @return the directory the profiles are saved in, or null if they are only kept in memory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key + FILE_SUFFIX);
+    }
+
+    private static MotionProfile2D readFile(File file) {
+        if (!file.isFile())
+            return null;
+        try {
+            MotionProfile2D ret = ProfileFile.map2D(file);
+            ret.buildTimeIndex();
+            return ret;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeFile(File file, MotionProfile2D profile) {
+        // Written to a temporary file first so a crash while writing won't leave a broken file behind
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            ProfileFile.write(profile, tmp);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * @param interpolator the acceleration interpolator a profile is generated with
+     * @return whether the profile can be cached, meaning the interpolator has a cache key or is a
+     * constant of AccelerationInterpolator
+     * @see AccelerationInterpolator#getCacheKey()
+     */
+    public static boolean canCache(AccelerationInterpolator interpolator) {
+        return getConstantName(interpolator) != null || interpolator.getCacheKey() != null;
+    }
+
+    private static String getConstantName(AccelerationInterpolator interpolator) {
+        if (interpolator == AccelerationInterpolator.LINEAR)
+            return "LINEAR";
+        if (interpolator == AccelerationInterpolator.EXPONENTIAL)
+            return "EXPONENTIAL";
+        if (interpolator == AccelerationInterpolator.HYPERBOLIC)
+            return "HYPERBOLIC";
+        if (interpolator == AccelerationInterpolator.EQUATION)
+            return "EQUATION";
+        return null;
+    }
+
+    /**
+     * @param constraints the timing constraints a profile is generated with
+     * @return whether the profile can be cached, meaning every constraint has a cache key
+     * @see TimingConstraint#getCacheKey()
+     */
+    public static boolean canCache(TimingConstraint... constraints) {
+        for (TimingConstraint constraint : constraints)
+            if (constraint.getCacheKey() == null)
+                return false;
+        return true;
+    }
+
+    /**
+     * @param generator the name of whatever generates the profiles, so different generators
+     *                  given the same inputs will have different keys
+     * @return a builder of a key
+     */
+    public static KeyBuilder keyBuilder(String generator) {
+        return new KeyBuilder(generator);
+    }
+
+    /**
+     * Builds a key by hashing (SHA-256) every input of a generator. Doubles are hashed by their exact bits,
+     * so any change to an input gives a different key.
+     */
+    public static class KeyBuilder {
+
+        private final MessageDigest digest;
+        private final byte[] buffer = new byte[8];
+
+        private KeyBuilder(String generator) {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("SHA-256 isn't supported", e);
+            }
+            putInt(GENERATOR_VERSION);
+            putString(generator);
+        }
+
+        public KeyBuilder putLong(long val) {
+            for (int i = 0; i < 8; i++)
+                buffer[i] = (byte) (val >>> (56 - 8 * i));
+            digest.update(buffer, 0, 8);
+            return this;
+        }
+
+        public KeyBuilder putInt(int val) {
+            return putLong(val);
+        }
+
+        public KeyBuilder putDouble(double val) {
+            return putLong(Double.doubleToLongBits(val));
+        }
+
+        public KeyBuilder putString(String val) {
+            byte[] bytes = val.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            digest.update(bytes);
+            return this;
+        }
+
+        public KeyBuilder putState(State state) {
+            return putDouble(state.getX()).putDouble(state.getY()).putDouble(state.getAngle())
+                    .putDouble(state.getLinearVelocity()).putDouble(state.getAngularVelocity())
+                    .putDouble(state.getLinearAccel()).putDouble(state.getAngularAccel());
+        }
+
+        public KeyBuilder putStates(List<State> states) {
+            putInt(states.size());
+            for (State state : states)
+                putState(state);
+            return this;
+        }
+
+        /**
+         * Only valid for data which can be cached.
+         *
+         * @see ProfileCache#canCache(AccelerationInterpolator)
+         */
+        public KeyBuilder putData(ProfilingData data) {
+            return putDouble(data.getMaxLinearVelocity()).putDouble(data.getMaxLinearAccel())
+                    .putDouble(data.getMaxAngularVelocity()).putDouble(data.getMaxAngularAccel())
+                    .putInterpolator(data.getAccelerationInterpolator());
+        }
+
+        /**
+         * Only valid for interpolators which can be cached.
+         *
+         * @see ProfileCache#canCache(AccelerationInterpolator)
+         */
+        public KeyBuilder putInterpolator(AccelerationInterpolator interpolator) {
+            String name = getConstantName(interpolator);
+            return putString(name != null ? name : interpolator.getCacheKey());
+        }
+
+        public KeyBuilder putConfiguration(ProfilingConfiguration config) {
+            return putDouble(config.getVelMultLin()).putDouble(config.getAccMultLin()).putDouble(config.getJump())
+                    .putDouble(config.getWheelPidKp()).putDouble(config.getWheelPidKi()).putDouble(config.getWheelPidKd())
+                    .putDouble(config.getCollapseConstPerWheel())
+                    .putDouble(config.getAngPidKp()).putDouble(config.getAngPidKi()).putDouble(config.getAngPidKd())
+                    .putDouble(config.getCollapseConstAngular()).putInt(config.getSmoothingTail());
+        }
+
+        /**
+         * Only valid for constraints which can be cached.
+         *
+         * @see ProfileCache#canCache(TimingConstraint...)
+         */
+        public KeyBuilder putConstraints(TimingConstraint... constraints) {
+            putInt(constraints.length);
+            for (TimingConstraint constraint : constraints)
+                putString(constraint.getCacheKey());
+            return this;
+        }
+
+        /**
+         * @return The key, as a hex string. Can be used as a file name.
+         */
+        public String build() {
+            byte[] hash = digest.digest();
+            StringBuilder ret = new StringBuilder(hash.length * 2);
+            for (byte b : hash)
+                ret.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return ret.toString();
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+package org.greenblitz.motion.profiling;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Saves profiles to, and opens them from, a compact binary file holding the segments themselves.
+ * <p>
+ * An opened profile reads it's segments directly from the memory mapped file, so opening a profile doesn't
+ * parse or copy anything (other than checking the checksum). The file is laid out as follows, all numbers
+ * being little-endian:
+ * <pre>
+ * int    magic ("GBMP")
+ * int    version
+ * int    amount of profiles (1 for MotionProfile1D, 2 for MotionProfile2D)
+ * int    0
+ * per profile:
+ *   long     amount of segments (n)
+ *   double[n] start times, then end times, accelerations, start velocities and start locations
+ * long   CRC32 of everything before it
+ * </pre>
+ *
+ * @see MotionProfile1D#generateCSV(String, double)
+ */
+public class ProfileFile {
+
+    public static final int MAGIC = 0x504D4247; // "GBMP" when written little-endian
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+    private static final int COLUMNS = 5;
+
+    /**
+     * @param profile the profile to save
+     * @param file    the file to save it to. Overwritten if it exists.
+     * @throws IOException if writing the file fails
+     */
+    public static void write(MotionProfile1D profile, File file) throws IOException {
+        write(file, profile);
+    }
+
+    /**
+     * @param profile the profile to save
+     * @param file    the file to save it to. Overwritten if it exists.
+     * @throws IOException if writing the file fails
+     */
+    public static void write(MotionProfile2D profile, File file) throws IOException {
+        write(file, profile.getFirstProfile(), profile.getSecondProfile());
+    }
+
+    /**
+     * @param file the file to open
+     * @return the profile saved in the file, read directly from it
+     * @throws IOException if the file can't be read or isn't a valid file of a single profile
+     */
+    public static MotionProfile1D map1D(File file) throws IOException {
+        MotionProfile1D[] profiles = map(file);
+        if (profiles.length != 1)
+            throw new IOException(file + " holds " + profiles.length + " profiles and not 1");
+        return profiles[0];
+    }
+
+    /**
+     * @param file the file to open
+     * @return the profile saved in the file, read directly from it
+     * @throws IOException if the file can't be read or isn't a valid file of a 2D profile
+     */
+    public static MotionProfile2D map2D(File file) throws IOException {
+        MotionProfile1D[] profiles = map(file);
+        if (profiles.length != 2)
+            throw new IOException(file + " holds " + profiles.length + " profiles and not 2");
+        try {
+            return new MotionProfile2D(profiles[0], profiles[1]);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + " isn't a valid 2D profile", e);
+        }
+    }
+
+    private static void write(File file, MotionProfile1D... profiles) throws IOException {
+        long size = HEADER_SIZE + Long.BYTES;
+        for (MotionProfile1D profile : profiles)
+            size += Long.BYTES + (long) COLUMNS * Double.BYTES * profile.segmentCount;
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Profile too big to save");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(profiles.length).putInt(0);
+        for (MotionProfile1D profile : profiles) {
+            int count = profile.segmentCount;
+            buffer.putLong(count);
+            for (int i = 0; i < count; i++)
+                buffer.putDouble(profile.tStartAt(i));
+            for (int i = 0; i < count; i++)
+                buffer.putDouble(profile.tEndAt(i));
+            for (int i = 0; i < count; i++)
+                buffer.putDouble(profile.accelAt(i));
+            for (int i = 0; i < count; i++)
+                buffer.putDouble(profile.startVelocityAt(i));
+            for (int i = 0; i < count; i++)
+                buffer.putDouble(profile.startLocationAt(i));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    private static MotionProfile1D[] map(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException(file + " is too big to be a profile");
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int size = buffer.limit();
+
+        if (size < HEADER_SIZE + Long.BYTES || buffer.getInt(0) != MAGIC)
+            throw new IOException(file + " isn't a profile file");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException(file + " has an unsupported version " + buffer.getInt(4));
+
+        CRC32 crc = new CRC32();
+        ByteBuffer checked = buffer.duplicate();
+        checked.limit(size - Long.BYTES);
+        crc.update(checked);
+        if (crc.getValue() != buffer.getLong(size - Long.BYTES))
+            throw new IOException(file + " is corrupted (wrong checksum)");
+
+        int profileCount = buffer.getInt(8);
+        if (profileCount < 1 || profileCount > 2)
+            throw new IOException(file + " has an invalid amount of profiles " + profileCount);
+        MotionProfile1D[] ret = new MotionProfile1D[profileCount];
+        int offset = HEADER_SIZE;
+        for (int i = 0; i < profileCount; i++) {
+            if (offset + Long.BYTES > size - Long.BYTES)
+                throw new IOException(file + " is truncated");
+            long count = buffer.getLong(offset);
+            offset += Long.BYTES;
+            if (count < 0 || count * COLUMNS * Double.BYTES > size - Long.BYTES - offset)
+                throw new IOException(file + " is truncated");
+            ret[i] = new MappedMotionProfile1D(buffer, offset, (int) count);
+            offset += (int) count * COLUMNS * Double.BYTES;
+        }
+        return ret;
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.greenblitz.motion.profiling;
+
+/**
+ * A mutable holder for the values of a MotionProfile2D at some point in time. Meant to be created once by the
+ * user of the profile and then filled again every iteration, so following a profile doesn't allocate.
+ *
+ * @see MotionProfile2D#sample(double, ProfileSample)
+ */
+public class ProfileSample {
+
+    protected double time;
+    protected double firstLocation, firstVelocity, firstAcceleration;
+    protected double secondLocation, secondVelocity, secondAcceleration;
+
+    /**
+     * @return The time this sample was taken at
+     */
+    public double getTime() {
+        return time;
+    }
+
+    public double getFirstLocation() {
+        return firstLocation;
+    }
+
+    public double getFirstVelocity() {
+        return firstVelocity;
+    }
+
+    public double getFirstAcceleration() {
+        return firstAcceleration;
+    }
+
+    public double getSecondLocation() {
+        return secondLocation;
+    }
+
+    public double getSecondVelocity() {
+        return secondVelocity;
+    }
+
+    public double getSecondAcceleration() {
+        return secondAcceleration;
+    }
+
+    @Override
+    public String toString() {
+        return "ProfileSample{" +
+                "time=" + time +
+                ", firstLocation=" + firstLocation +
+                ", firstVelocity=" + firstVelocity +
+                ", firstAcceleration=" + firstAcceleration +
+                ", secondLocation=" + secondLocation +
+                ", secondVelocity=" + secondVelocity +
+                ", secondAcceleration=" + secondAcceleration +
+                '}';
+    }
+}
@@ -1,10 +1,8 @@
 package org.greenblitz.motion.profiling;
 
-import org.greenblitz.motion.base.TwoTuple;
 import org.greenblitz.motion.exceptions.NotEnoughAcceleratingSpace;
 import org.greenblitz.motion.exceptions.ProfilingException;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -49,69 +47,209 @@ public class Profiler1D {
      */
     public static MotionProfile1D generateProfile(List<ActuatorLocation> waypoints,
                                                   double maxV, double maxAcc, double minAcc, double tStart) {
-        if (Math.signum(minAcc) == Math.signum(maxAcc))
-            throw new ProfilingException("Sign of max speedup and max slowdown can't be the same. " + maxAcc);
-        if (maxV == 0 || minAcc == 0 || maxAcc == 0)
-            throw new ProfilingException("One of the actuator constants is 0 but isn't allowed to be.");
-        if (waypoints.size() > 0 && Math.abs(waypoints.get(0).getV()) - Math.abs(maxV) > EPSILON)
-            throw new ProfilingException("Can't accelerate past +-" + maxV + "m/s. " + waypoints.get(0).getV() + "m/s was given on point 0");
-
-        double v1, v2, S, a1, a2, t1, t2, t0;
-        List<MotionProfile1D.Segment> segments = new ArrayList<>();
-        for (int i = 0; i < waypoints.size() - 1; i++) {
-
+        return generateProfile(waypoints, maxV, maxAcc, minAcc, tStart, null);
+    }
 
+    /**
+     * Same as generateProfile(List, double, double, double, double), but writes the profile into out instead of
+     * creating a new one. Once out is big enough it doesn't allocate anything, so it's fine to call it every loop
+     * (e.g. whenever the setpoint of an elevator changes).
+     *
+     * @param waypoints given path
+     * @param maxV      maximum velocity
+     * @param maxAcc    maximum acceleration, used to accelerate
+     * @param minAcc    minimum acceleration, used to decelerate
+     * @param tStart    the time this profile starts at
+     * @param out       the profile to write to, it's previous segments are removed. null to create a new one.
+     * @return out, or the new profile if it's null
+     * @throws ProfilingException Profiling isn't always possible. When so this exceptions is thrown, and what's
+     *                            left in out is undefined.
+     */
+    public static MotionProfile1D generateProfile(List<ActuatorLocation> waypoints, double maxV, double maxAcc,
+                                                  double minAcc, double tStart, MotionProfile1D out) {
+        int count = waypoints.size();
+        checkConstants(maxV, maxAcc, minAcc, count > 0 ? waypoints.get(0).getV() : 0);
+        out = prepareOutput(out, count);
+        for (int i = 0; i < count - 1; i++) {
             ActuatorLocation curr = waypoints.get(i);
             ActuatorLocation next = waypoints.get(i + 1);
-            v1 = curr.getV();
-            v2 = next.getV();
-            S = next.x - curr.x;
-            if (S > 0) {
-                a1 = maxAcc;
-                a2 = minAcc;
-            } else {
-                a1 = minAcc;
-                a2 = maxAcc;
-            }
+            profilePair(out, 0, null, i, curr.x, curr.v, next.x, next.v, maxV, maxAcc, minAcc,
+                    i == 0 ? tStart : out.getTEnd());
+        }
+        out.removeBugSegments();
+        return out;
+    }
 
-            if (Math.abs(v2) > Math.abs(maxV))
-                throw new ProfilingException("Can't accelerate past +-" + maxV + "m/s. " + v2 + "m/s was given on point " + (i + 1));
+    /**
+     * Same as generateProfile(List, double, double, double, double, MotionProfile1D), with the waypoints
+     * given as arrays of their locations and velocities, so they don't have to be objects either.
+     *
+     * @param locations  the locations of the waypoints
+     * @param velocities the velocities at the waypoints
+     * @param from       the index of the first waypoint
+     * @param to         the index after the last waypoint
+     * @param maxV       maximum velocity
+     * @param maxAcc     maximum acceleration, used to accelerate
+     * @param minAcc     minimum acceleration, used to decelerate
+     * @param tStart     the time this profile starts at
+     * @param out        the profile to write to, it's previous segments are removed. null to create a new one.
+     * @return out, or the new profile if it's null
+     * @throws ProfilingException Profiling isn't always possible. When so this exceptions is thrown, and what's
+     *                            left in out is undefined.
+     */
+    public static MotionProfile1D generateProfile(double[] locations, double[] velocities, int from, int to,
+                                                  double maxV, double maxAcc, double minAcc, double tStart,
+                                                  MotionProfile1D out) {
+        if (from < 0 || to > locations.length || to > velocities.length || from > to)
+            throw new IndexOutOfBoundsException("Invalid waypoint range [" + from + ", " + to + ")");
+        int count = to - from;
+        checkConstants(maxV, maxAcc, minAcc, count > 0 ? velocities[from] : 0);
+        out = prepareOutput(out, count);
+        for (int i = 0; i < count - 1; i++) {
+            int curr = from + i;
+            profilePair(out, 0, null, i, locations[curr], velocities[curr], locations[curr + 1], velocities[curr + 1],
+                    maxV, maxAcc, minAcc, i == 0 ? tStart : out.getTEnd());
+        }
+        out.removeBugSegments();
+        return out;
+    }
 
-            double minTime = (v2 - v1) / (v2 >= v1 ? a1 : a2);
-            double minDistPass = minTime * v1 + 0.5 * (v2 >= v1 ? a1 : a2) * minTime * minTime;
-            if (Math.abs(minDistPass) - Math.abs(S) > 0.001 && Math.signum(minDistPass) == Math.signum(S)) {
-                throw new NotEnoughAcceleratingSpace("Not enough space to accelerate, minimum "
-                        + minDistPass + "m required, " + S + "m used. Occurred when profiling between point " + i + " and point " + (i + 1) + "."
-                );
+    /**
+     * Profiles many waypoint lists at once, all with the same constants. The waypoints of all lists are given
+     * one after the other, list i being the waypoints from offsets[i] up to (not including) offsets[i + 1].
+     * <p>
+     * Profiles already in out are reused, so calling this again with the same out doesn't allocate anything
+     * once the profiles are big enough.
+     *
+     * @param locations  the locations of the waypoints of all lists
+     * @param velocities the velocities at the waypoints of all lists
+     * @param offsets    where each list starts, followed by where the last one ends
+     * @param maxV       maximum velocity
+     * @param maxAcc     maximum acceleration, used to accelerate
+     * @param minAcc     minimum acceleration, used to decelerate
+     * @param tStart     the time all profiles start at
+     * @param out        the profiles to write to, with at least offsets.length - 1 elements. null elements
+     *                   are replaced by new profiles. null to create a new array.
+     * @return out, or the new array if it's null
+     * @throws ProfilingException When profiling one of the lists fails. The profiles of the lists before it
+     *                            are already written.
+     */
+    public static MotionProfile1D[] generateProfiles(double[] locations, double[] velocities, int[] offsets,
+                                                     double maxV, double maxAcc, double minAcc, double tStart,
+                                                     MotionProfile1D[] out) {
+        int profileCount = Math.max(offsets.length - 1, 0);
+        if (out == null)
+            out = new MotionProfile1D[profileCount];
+        else if (out.length < profileCount)
+            throw new IllegalArgumentException("out has " + out.length + " profiles, " + profileCount + " needed");
+        for (int i = 0; i < profileCount; i++) {
+            try {
+                out[i] = generateProfile(locations, velocities, offsets[i], offsets[i + 1],
+                        maxV, maxAcc, minAcc, tStart, out[i]);
+            } catch (ProfilingException e) {
+                throw new ProfilingException("Failed profiling waypoint list " + i + ": " + e.getMessage(), e);
             }
+        }
+        return out;
+    }
 
-            TwoTuple<Double, Double> triangleTimes = getTriangleProfileTimes(a1, a2, S, v1, v2, i);
-            t1 = triangleTimes.getFirst();
-            t2 = triangleTimes.getSecond();
-
-            double[] trapezoidalSegments = flatterTriangleProfileToTrapezoid(t1, t2, maxV, v1, v2, a1, a2);
-
-            t0 = i == 0 ? tStart : segments.get(segments.size() - 1).tEnd;
+    /**
+     * Where the actuator should be dt seconds from now, when going from it's current state to the goal as quickly
+     * as possible. This is the same as generating a profile of the two and taking the state at dt, without
+     * generating the profile, so it's cheap enough to call every loop.
+     *
+     * @param current the current state of the actuator
+     * @param goal    the state to reach
+     * @param maxV    maximum velocity
+     * @param maxAcc  maximum acceleration, used to accelerate
+     * @param minAcc  minimum acceleration, used to decelerate
+     * @param dt      how far ahead to look, in seconds
+     * @return the state after dt seconds, which is the goal once it's reached
+     * @throws ProfilingException When generateProfile would throw for current and goal.
+     */
+    public static ActuatorLocation step(ActuatorLocation current, ActuatorLocation goal,
+                                       double maxV, double maxAcc, double minAcc, double dt) {
+        return step(current, goal, maxV, maxAcc, minAcc, dt, new ActuatorLocation(0, 0));
+    }
 
-            addSegmentByTimes(segments, trapezoidalSegments[0], trapezoidalSegments[1], trapezoidalSegments[2], t0, t1, t2, a1, a2, curr);
+    /**
+     * Same as step(ActuatorLocation, ActuatorLocation, double, double, double, double), but writes the
+     * state into out instead of allocating one. out may be current or goal.
+     *
+     * @param out where the state is written
+     * @return out
+     */
+    public static ActuatorLocation step(ActuatorLocation current, ActuatorLocation goal,
+                                       double maxV, double maxAcc, double minAcc, double dt, ActuatorLocation out) {
+        if (dt < 0)
+            throw new IllegalArgumentException("dt can't be negative, got " + dt);
+        double x1 = current.x, v1 = current.v, x2 = goal.x, v2 = goal.v;
+        checkConstants(maxV, maxAcc, minAcc, v1);
+        // A velocity a bit past the max (which is allowed, see checkConstants) is treated as the max,
+        // otherwise the profile would never flatten to cruise once it's there
+        v1 = Math.max(-Math.abs(maxV), Math.min(Math.abs(maxV), v1));
+        out.x = x2;
+        out.v = v2;
+        profilePair(null, dt, out, 0, x1, v1, x2, v2, maxV, maxAcc, minAcc, 0);
+        return out;
+    }
 
-        }
-        MotionProfile1D ret = new MotionProfile1D(segments);
-        ret.removeBugSegments();
-        return ret;
+    private static void checkConstants(double maxV, double maxAcc, double minAcc, double vStart) {
+        if (Math.signum(minAcc) == Math.signum(maxAcc))
+            throw new ProfilingException("Sign of max speedup and max slowdown can't be the same. " + maxAcc);
+        if (maxV == 0 || minAcc == 0 || maxAcc == 0)
+            throw new ProfilingException("One of the actuator constants is 0 but isn't allowed to be.");
+        if (Math.abs(vStart) - Math.abs(maxV) > EPSILON)
+            throw new ProfilingException("Can't accelerate past +-" + maxV + "m/s. " + vStart + "m/s was given on point 0");
     }
 
+    private static MotionProfile1D prepareOutput(MotionProfile1D out, int waypointCount) {
+        if (out == null)
+            return new MotionProfile1D(3 * (waypointCount - 1));
+        out.clear();
+        return out;
+    }
 
     /**
-     * @param a1 maxA in first segment
-     * @param a2 maxA in second segment
-     * @param S  Area (distance) to cover
-     * @param v1 V in the start
-     * @param v2 V in the end
-     * @param i  index of points for debugging
-     * @return A TwoTuple with the first element being the first segment time and the second the second segment time
+     * Profiles going from one waypoint to the next. Up to 3 segments are made, some of which may have no
+     * length (removeBugSegments() takes care of those). They are either appended to a profile, or only the
+     * state at a single time is taken from them.
+     *
+     * @param out   the profile to append to, or null to only find the state at time t
+     * @param t     the time to find the state at, only used if out is null
+     * @param state where the state at time t is written, only used if out is null
+     * @param i     index of the first point, for debugging
+     * @param x1    location of the first point
+     * @param v1    V in the start
+     * @param x2    location of the second point
+     * @param v2    V in the end
+     * @param t0    the start time
      */
-    private static TwoTuple<Double, Double> getTriangleProfileTimes(double a1, double a2, double S, double v1, double v2, double i) {
+    private static void profilePair(MotionProfile1D out, double t, ActuatorLocation state, int i,
+                                    double x1, double v1, double x2, double v2,
+                                    double maxV, double maxAcc, double minAcc, double t0) {
+        double S = x2 - x1;
+        double a1, a2;
+        if (S > 0) {
+            a1 = maxAcc;
+            a2 = minAcc;
+        } else {
+            a1 = minAcc;
+            a2 = maxAcc;
+        }
+
+        if (Math.abs(v2) > Math.abs(maxV))
+            throw new ProfilingException("Can't accelerate past +-" + maxV + "m/s. " + v2 + "m/s was given on point " + (i + 1));
+
+        double minTime = (v2 - v1) / (v2 >= v1 ? a1 : a2);
+        double minDistPass = minTime * v1 + 0.5 * (v2 >= v1 ? a1 : a2) * minTime * minTime;
+        if (Math.abs(minDistPass) - Math.abs(S) > 0.001 && Math.signum(minDistPass) == Math.signum(S)) {
+            throw new NotEnoughAcceleratingSpace("Not enough space to accelerate, minimum "
+                    + minDistPass + "m required, " + S + "m used. Occurred when profiling between point " + i + " and point " + (i + 1) + "."
+            );
+        }
+
+        // The triangle profile: accelerating at a1 for t1, then at a2 for t2
         double underRoot = (a2 - a1) * (2 * a1 * a2 * S + a2 * v1 * v1 - a1 * v2 * v2);
         if (underRoot < 0)
             throw new ProfilingException("Path not calculable, root is negative between point "
@@ -127,89 +265,15 @@ public class Profiler1D {
             throw new ProfilingException("Path entered not valid for unknown reason. " +
                     "Occurred when profiling between point " + i + " and point " + (i + 1) + ".");
         }
-        return new TwoTuple<>(t1, t2);
-    }
-
-    /**
-     * @param segments    will append to this
-     * @param midSecStart as returned from flatterTriangleProfileToTrapezoid()
-     * @param midSecEnd   as returned from flatterTriangleProfileToTrapezoid()
-     * @param lastSecEnd  as returned from flatterTriangleProfileToTrapezoid()
-     * @param t0          The start time
-     * @param t1          first element from getTriangleProfileTimes()
-     * @param t2          second element form getTriangleProfileTimes()
-     * @param a1          maxA in first segment
-     * @param a2          maxA in second segment
-     * @param curr        The first point in the current point pair
-     */
-    private static void addSegmentByTimes(List<MotionProfile1D.Segment> segments, double midSecStart, double midSecEnd, double lastSecEnd,
-                                          double t0, double t1, double t2, double a1, double a2, ActuatorLocation curr) {
-        if (midSecStart == midSecEnd) {
-            MotionProfile1D.Segment first = new MotionProfile1D.Segment(
-                    t0,
-                    t0 + t1,
-                    a1,
-                    curr.v,
-                    curr.x
-            );
-            MotionProfile1D.Segment last = new MotionProfile1D.Segment(
-                    t0 + t1,
-                    t0 + t1 + t2,
-                    a2,
-                    curr.v + a1 * t1,
-                    curr.x + curr.v * t1 + 0.5 * a1 * t1 * t1
-            );
-            segments.add(first);
-            segments.add(last);
-        } else {
-            MotionProfile1D.Segment first = new MotionProfile1D.Segment(
-                    t0,
-                    t0 + midSecStart,
-                    a1,
-                    curr.v,
-                    curr.x
-            );
-            MotionProfile1D.Segment middle = new MotionProfile1D.Segment(
-                    t0 + midSecStart,
-                    t0 + midSecEnd,
-                    0,
-                    curr.v + midSecStart * a1,
-                    curr.x + curr.v * midSecStart + 0.5 * a1 * midSecStart * midSecStart
-            );
-            MotionProfile1D.Segment last = new MotionProfile1D.Segment(
-                    t0 + midSecEnd,
-                    t0 + lastSecEnd,
-                    a2,
-                    curr.v + midSecStart * a1,
-                    curr.x + curr.v * midSecStart + 0.5 * a1 * midSecStart * midSecStart
-                            + (midSecEnd - midSecStart) * (curr.v + midSecStart * a1)
-            );
-            segments.add(first);
-            segments.add(middle);
-            segments.add(last);
-        }
-    }
 
-    /**
-     * @param t1   first element from getTriangleProfileTimes()
-     * @param t2   second element form getTriangleProfileTimes()
-     * @param maxV maximum velocity
-     * @param v1   V in the start
-     * @param v2   V in the end
-     * @param a1   maxA in first segment
-     * @param a2   maxA in second segment
-     * @return [end of first segment, end of second segment, end of last segment]
-     */
-    private static double[] flatterTriangleProfileToTrapezoid(
-            double t1, double t2, double maxV, double v1, double v2, double a1, double a2
-    ) {
+        // Flattening the triangle to a trapezoid if it passes the max velocity, or starts at it
         double midSecStart = t1;
         double midSecEnd = t1;
         double lastSecEnd = t1 + t2;
 
         double intersectionOne = (maxV - v1) / a1;
         double intersectionTwo = (maxV + a2 * (t1 + t2) - v2) / a2;
-        if (intersectionOne < t1 && intersectionOne > 0) {
+        if (intersectionOne < t1 && intersectionOne >= 0) {
             double areaLost = 0.5 * (intersectionTwo - intersectionOne) * (a1 * t1 + v1 - maxV);
             double timeToAdd = areaLost / maxV;
 
@@ -220,7 +284,7 @@ public class Profiler1D {
 
         intersectionOne = (-maxV - v1) / a1;
         intersectionTwo = (-maxV + a2 * (t1 + t2) - v2) / a2;
-        if (intersectionOne < t1 && intersectionOne > 0) {
+        if (intersectionOne < t1 && intersectionOne >= 0) {
             double areaLost = 0.5 * (intersectionTwo - intersectionOne) * (a1 * t1 + v1 + maxV);
             double timeToAdd = areaLost / (-maxV);
 
@@ -229,7 +293,28 @@ public class Profiler1D {
             lastSecEnd = t1 + t2 + timeToAdd;
         }
 
-        return new double[]{midSecStart, midSecEnd, lastSecEnd};
+        if (midSecStart == midSecEnd) {
+            emitSegment(out, t, state, t0, t0 + t1, a1, v1, x1);
+            emitSegment(out, t, state, t0 + t1, t0 + t1 + t2, a2, v1 + a1 * t1, x1 + v1 * t1 + 0.5 * a1 * t1 * t1);
+        } else {
+            double midVelocity = v1 + midSecStart * a1;
+            double midLocation = x1 + v1 * midSecStart + 0.5 * a1 * midSecStart * midSecStart;
+            emitSegment(out, t, state, t0, t0 + midSecStart, a1, v1, x1);
+            emitSegment(out, t, state, t0 + midSecStart, t0 + midSecEnd, 0, midVelocity, midLocation);
+            emitSegment(out, t, state, t0 + midSecEnd, t0 + lastSecEnd, a2, midVelocity,
+                    midLocation + (midSecEnd - midSecStart) * midVelocity);
+        }
+    }
+
+    private static void emitSegment(MotionProfile1D out, double t, ActuatorLocation state,
+                                    double tStart, double tEnd, double accel, double startVelocity, double startLocation) {
+        if (out != null) {
+            out.addSegment(tStart, tEnd, accel, startVelocity, startLocation);
+        } else if (t >= tStart && t < tEnd) {
+            double timePassed = t - tStart;
+            state.x = startLocation + timePassed * startVelocity + 0.5 * timePassed * timePassed * accel;
+            state.v = startVelocity + timePassed * accel;
+        }
     }
 
 }
@@ -8,6 +8,7 @@ import java.util.Objects;
 public class ProfilingData {
 
     protected double maxLinearVelocity, maxLinearAccel, maxAngularVelocity, maxAngularAccel;
+    protected AccelerationInterpolator accelerationInterpolator;
 
     /**
      * @param maxLinearVelocity
@@ -16,10 +17,24 @@ public class ProfilingData {
      * @param maxAngularAccel
      */
     public ProfilingData(double maxLinearVelocity, double maxLinearAccel, double maxAngularVelocity, double maxAngularAccel) {
+        this(maxLinearVelocity, maxLinearAccel, maxAngularVelocity, maxAngularAccel, AccelerationInterpolator.LINEAR);
+    }
+
+    /**
+     * @param maxLinearVelocity
+     * @param maxLinearAccel
+     * @param maxAngularVelocity
+     * @param maxAngularAccel
+     * @param accelerationInterpolator the maximal linear acceleration by velocity, e.g. a
+     *                                 TabulatedAccelerationInterpolator of the drivetrain. AccelerationInterpolator.LINEAR by default.
+     */
+    public ProfilingData(double maxLinearVelocity, double maxLinearAccel, double maxAngularVelocity, double maxAngularAccel,
+                         AccelerationInterpolator accelerationInterpolator) {
         this.maxLinearVelocity = maxLinearVelocity;
         this.maxLinearAccel = maxLinearAccel;
         this.maxAngularVelocity = maxAngularVelocity;
         this.maxAngularAccel = maxAngularAccel;
+        this.accelerationInterpolator = accelerationInterpolator;
     }
 
     public double getMaxLinearVelocity() {
@@ -38,6 +53,10 @@ public class ProfilingData {
         return maxAngularAccel;
     }
 
+    public AccelerationInterpolator getAccelerationInterpolator() {
+        return accelerationInterpolator;
+    }
+
     @Override
     public String toString() {
         return "ProfilingData{" +
@@ -45,6 +64,7 @@ public class ProfilingData {
                 ", maxLinearAccel=" + maxLinearAccel +
                 ", maxAngularVelocity=" + maxAngularVelocity +
                 ", maxAngularAccel=" + maxAngularAccel +
+                ", accelerationInterpolator=" + accelerationInterpolator +
                 '}';
     }
 
@@ -56,11 +76,12 @@ public class ProfilingData {
         return Double.compare(that.maxLinearVelocity, maxLinearVelocity) == 0 &&
                 Double.compare(that.maxLinearAccel, maxLinearAccel) == 0 &&
                 Double.compare(that.maxAngularVelocity, maxAngularVelocity) == 0 &&
-                Double.compare(that.maxAngularAccel, maxAngularAccel) == 0;
+                Double.compare(that.maxAngularAccel, maxAngularAccel) == 0 &&
+                Objects.equals(accelerationInterpolator, that.accelerationInterpolator);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(maxLinearVelocity, maxLinearAccel, maxAngularVelocity, maxAngularAccel);
+        return Objects.hash(maxLinearVelocity, maxLinearAccel, maxAngularVelocity, maxAngularAccel, accelerationInterpolator);
     }
 }
@@ -0,0 +1,88 @@
+package org.greenblitz.motion.profiling;
+
+/**
+ * How ChassisProfiler2D generates a profile, as opposed to what profile it generates. Given per call, so
+ * different callers (e.g. a replanning command and an autonomous chooser) can't change each other's settings.
+ * <p>
+ * Immutable, the setters return a changed copy.
+ *
+ * @see ChassisProfiler2D#generateProfile(java.util.List, double, double, double, ProfilingData, double, double, int, double, java.util.List, ProfilingOptions)
+ */
+public class ProfilingOptions {
+
+    /**
+     * No parallel division, PAIRWISE splines and no caches.
+     */
+    public static final ProfilingOptions DEFAULT =
+            new ProfilingOptions(false, ChassisProfiler2D.SplineType.PAIRWISE, null, null);
+
+    protected final boolean parallelDivision;
+    protected final ChassisProfiler2D.SplineType splineType;
+    protected final ProfileCache profileCache;
+    protected final GeometryCache geometryCache;
+
+    /**
+     * @param parallelDivision when true, the splines of the waypoint pairs are generated and divided to sub-curves
+     *                         on the common ForkJoin pool instead of the calling thread. The generated profiles are
+     *                         exactly the same either way.
+     * @param splineType       how the polynomials between the waypoints are generated. Smoother curvature at the
+     *                         waypoints means less sub-curves when dividing adaptively and less need for a long
+     *                         smoothing tail.
+     * @param profileCache     when set, a profile generated from exactly the same inputs is looked up in the cache
+     *                         first, and every profile generated is cached. null to always generate.
+     * @param geometryCache    when set, the sub-curves every waypoint pair is divided to are looked up in the cache
+     *                         before dividing it, so generating profiles of the same path with different limits
+     *                         only divides it once. null to always divide.
+     */
+    public ProfilingOptions(boolean parallelDivision, ChassisProfiler2D.SplineType splineType,
+                            ProfileCache profileCache, GeometryCache geometryCache) {
+        if (splineType == null)
+            throw new IllegalArgumentException("The spline type can't be null");
+        this.parallelDivision = parallelDivision;
+        this.splineType = splineType;
+        this.profileCache = profileCache;
+        this.geometryCache = geometryCache;
+    }
+
+    public boolean isParallelDivision() {
+        return parallelDivision;
+    }
+
+    public ChassisProfiler2D.SplineType getSplineType() {
+        return splineType;
+    }
+
+    public ProfileCache getProfileCache() {
+        return profileCache;
+    }
+
+    public GeometryCache getGeometryCache() {
+        return geometryCache;
+    }
+
+    public ProfilingOptions setParallelDivision(boolean parallelDivision) {
+        return new ProfilingOptions(parallelDivision, splineType, profileCache, geometryCache);
+    }
+
+    public ProfilingOptions setSplineType(ChassisProfiler2D.SplineType splineType) {
+        return new ProfilingOptions(parallelDivision, splineType, profileCache, geometryCache);
+    }
+
+    public ProfilingOptions setProfileCache(ProfileCache profileCache) {
+        return new ProfilingOptions(parallelDivision, splineType, profileCache, geometryCache);
+    }
+
+    public ProfilingOptions setGeometryCache(GeometryCache geometryCache) {
+        return new ProfilingOptions(parallelDivision, splineType, profileCache, geometryCache);
+    }
+
+    @Override
+    public String toString() {
+        return "ProfilingOptions{" +
+                "parallelDivision=" + parallelDivision +
+                ", splineType=" + splineType +
+                ", profileCache=" + profileCache +
+                ", geometryCache=" + geometryCache +
+                '}';
+    }
+}
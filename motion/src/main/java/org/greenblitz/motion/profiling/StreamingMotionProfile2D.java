@@ -0,0 +1,165 @@
+package org.greenblitz.motion.profiling;
+
+import org.greenblitz.motion.base.Position;
+import org.greenblitz.motion.base.Vector2D;
+import org.greenblitz.motion.exceptions.ProfilingException;
+
+/**
+ * A profile which is still being generated while it is being used.
+ * Every lookup of a time that wasn't generated yet blocks until it is.
+ *
+ * @see ChassisProfiler2D#generateStreamingProfile
+ */
+public class StreamingMotionProfile2D extends MotionProfile2D {
+
+    private final MotionProfile1D secondProfile;
+    private volatile double availableTEnd;
+    private volatile boolean generationFinished = false;
+    private Throwable failure;
+
+    /**
+     * This is package protected on purpose.
+     * Both profiles are written to only while synchronizing on this profile.
+     *
+     * @param firstProfile
+     * @param secondProfile the profile which is generated last
+     */
+    StreamingMotionProfile2D(MotionProfile1D firstProfile, MotionProfile1D secondProfile) {
+        super(firstProfile, secondProfile);
+        this.secondProfile = secondProfile;
+        availableTEnd = secondProfile.getTEnd();
+    }
+
+    /**
+     * @return whether the whole profile was generated
+     */
+    public boolean isGenerationFinished() {
+        return generationFinished;
+    }
+
+    /**
+     * @return the time up to which the profile was generated
+     */
+    double getAvailableTEnd() {
+        return availableTEnd;
+    }
+
+    /**
+     * Should be called while synchronizing on this profile, after adding segments to both profiles.
+     */
+    void segmentsAdded() {
+        availableTEnd = secondProfile.getTEnd();
+        notifyAll();
+    }
+
+    /**
+     * Should be called while synchronizing on this profile, after adding the last segments.
+     */
+    void finishGeneration() {
+        super.buildTimeIndex();
+        availableTEnd = secondProfile.getTEnd();
+        generationFinished = true;
+        notifyAll();
+    }
+
+    synchronized void fail(Throwable e) {
+        failure = e;
+        notifyAll();
+    }
+
+    /**
+     * Waits until the profile is generated after t, or until it's finished.
+     * Must be called while synchronizing on this profile.
+     */
+    private void await(double t) {
+        while (!generationFinished && availableTEnd <= t) {
+            if (failure != null)
+                throw new ProfilingException("Generating the profile failed", failure);
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProfilingException("Interrupted while waiting for the profile to generate", e);
+            }
+        }
+    }
+
+    private void awaitFinished() {
+        await(Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    synchronized MotionProfile2D copy() {
+        awaitFinished();
+        return super.copy();
+    }
+
+    @Override
+    public synchronized double getTEnd() {
+        awaitFinished();
+        return super.getTEnd();
+    }
+
+    @Override
+    public synchronized boolean isOver(double t) {
+        await(t);
+        return generationFinished && super.isOver(t);
+    }
+
+    @Override
+    public synchronized Vector2D getAcceleration(double t) {
+        await(t);
+        return super.getAcceleration(t);
+    }
+
+    @Override
+    public synchronized Vector2D getVelocity(double t) {
+        await(t);
+        return super.getVelocity(t);
+    }
+
+    @Override
+    public synchronized Vector2D getLocation(double t) {
+        await(t);
+        return super.getLocation(t);
+    }
+
+    @Override
+    public synchronized ProfileSample sample(double t, ProfileSample out) {
+        await(t);
+        return super.sample(t, out);
+    }
+
+    @Override
+    synchronized Position getActualLocation(double t, Position prev, double prevT, double epsilon) {
+        await(t);
+        return super.getActualLocation(t, prev, prevT, epsilon);
+    }
+
+    /**
+     * The time index is built anyway once the generation finishes, so this does nothing before that.
+     */
+    @Override
+    public synchronized void buildTimeIndex() {
+        if (generationFinished)
+            super.buildTimeIndex();
+    }
+
+    @Override
+    public synchronized void removeBugSegments() {
+        awaitFinished();
+        super.removeBugSegments();
+    }
+
+    @Override
+    public synchronized double[] compact(double velocityTolerance, double locationTolerance) {
+        awaitFinished();
+        return super.compact(velocityTolerance, locationTolerance);
+    }
+
+    @Override
+    public synchronized String toString() {
+        awaitFinished();
+        return super.toString();
+    }
+}
@@ -0,0 +1,157 @@
+package org.greenblitz.motion.profiling;
+
+import org.greenblitz.motion.exceptions.ProfilingException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Profiles several 1D actuators (e.g. an elevator, a wrist and a turret) so they all finish at the same time.
+ * <p>
+ * Every axis is first profiled on it's own with Profiler1D. The axis which takes the longest is the limiting
+ * one, and every other axis is stretched in time to end with it: slowing a profile down by a factor k divides
+ * it's velocities by k and it's accelerations by k squared, so the stretched profile stays within it's limits.
+ * This would also divide the velocities at the waypoints of the stretched axes, so only the limiting axis may
+ * pass through it's waypoints without stopping; every other axis must have a velocity of 0 at all of them.
+ * <p>
+ * The returned profiles share their segment boundaries, so the segment index found for one of them is valid
+ * for all of them:
+ * <pre>
+ * int index = profiles[0].quickGetSegmentIndex(t);
+ * double wrist = profiles[1].getLocationAt(index, t);
+ * </pre>
+ */
+public class SynchronizedProfiler1D {
+
+    /**
+     * Boundaries of different axes closer than this (in seconds) are merged, so no tiny segments are made.
+     */
+    private static final double BOUNDARY_EPSILON = 1E-9;
+
+    /**
+     * @param waypoints the waypoints of every axis
+     * @param maxV      maximum velocity of every axis
+     * @param maxAcc    maximum acceleration of every axis, used to accelerate
+     * @param minAcc    minimum acceleration of every axis, used to decelerate
+     * @return a profile for every axis, all ending at the same time
+     * @throws ProfilingException When profiling one of the axes fails.
+     * @see SynchronizedProfiler1D#generateProfiles(List, double[], double[], double[], double)
+     */
+    public static MotionProfile1D[] generateProfiles(List<? extends List<ActuatorLocation>> waypoints,
+                                                     double[] maxV, double[] maxAcc, double[] minAcc) {
+        return generateProfiles(waypoints, maxV, maxAcc, minAcc, 0);
+    }
+
+    /**
+     * @param waypoints the waypoints of every axis
+     * @param maxV      maximum velocity of every axis
+     * @param maxAcc    maximum acceleration of every axis, used to accelerate
+     * @param minAcc    minimum acceleration of every axis, used to decelerate
+     * @param tStart    the time all profiles start at
+     * @return a profile for every axis, all ending at the same time and sharing their segment boundaries
+     * @throws ProfilingException When profiling one of the axes fails.
+     * @throws IllegalArgumentException When an axis that has to be stretched has a waypoint with a velocity.
+     */
+    public static MotionProfile1D[] generateProfiles(List<? extends List<ActuatorLocation>> waypoints,
+                                                     double[] maxV, double[] maxAcc, double[] minAcc, double tStart) {
+        int axes = waypoints.size();
+        if (maxV.length != axes || maxAcc.length != axes || minAcc.length != axes)
+            throw new IllegalArgumentException("Got " + axes + " axes but limits for "
+                    + maxV.length + ", " + maxAcc.length + " and " + minAcc.length);
+
+        MotionProfile1D[] profiles = new MotionProfile1D[axes];
+        double duration = 0;
+        int boundaryCount = 0;
+        for (int i = 0; i < axes; i++) {
+            List<ActuatorLocation> axis = waypoints.get(i);
+            if (axis.isEmpty())
+                throw new IllegalArgumentException("Axis " + i + " has no waypoints");
+            try {
+                profiles[i] = Profiler1D.generateProfile(axis, maxV[i], maxAcc[i], minAcc[i], 0, null);
+            } catch (ProfilingException e) {
+                throw new ProfilingException("Failed profiling axis " + i + ": " + e.getMessage(), e);
+            }
+            if (profiles[i].getSegmentCount() == 0)
+                profiles[i].addSegment(0, 0, 0, 0, axis.get(0).getX());
+            duration = Math.max(duration, profiles[i].getTEnd());
+            boundaryCount += profiles[i].getSegmentCount();
+        }
+
+        // Stretching every axis to the limiting one, and collecting the segment ends of all of them
+        double[] boundaries = new double[boundaryCount];
+        boundaryCount = 0;
+        for (int i = 0; i < axes; i++) {
+            MotionProfile1D profile = profiles[i];
+            if (profile.getTEnd() != duration) {
+                List<ActuatorLocation> axis = waypoints.get(i);
+                for (int j = 0; j < axis.size(); j++) {
+                    if (axis.get(j).getV() != 0)
+                        throw new IllegalArgumentException("Axis " + i + " is slowed down to end with the others, "
+                                + "so it can't have a velocity at waypoint " + j);
+                }
+            }
+            stretch(profile, duration);
+            for (int j = 0; j < profile.segmentCount; j++)
+                boundaries[boundaryCount++] = profile.tEnds[j];
+        }
+        Arrays.sort(boundaries);
+        int unique = 0;
+        for (int j = 0; j < boundaryCount; j++) {
+            if (boundaries[j] > BOUNDARY_EPSILON && boundaries[j] < duration - BOUNDARY_EPSILON
+                    && (unique == 0 || boundaries[j] - boundaries[unique - 1] > BOUNDARY_EPSILON))
+                boundaries[unique++] = boundaries[j];
+        }
+        boundaries = Arrays.copyOf(boundaries, unique + 1);
+        boundaries[unique] = duration;
+
+        MotionProfile1D[] ret = new MotionProfile1D[axes];
+        for (int i = 0; i < axes; i++)
+            ret[i] = split(profiles[i], boundaries, tStart);
+        return ret;
+    }
+
+    /**
+     * Slows the profile down so it ends at the given time. The profile must start at 0.
+     */
+    private static void stretch(MotionProfile1D profile, double duration) {
+        double tEnd = profile.getTEnd();
+        if (tEnd == duration)
+            return;
+        if (tEnd == 0) {
+            // Standing still the whole time
+            profile.tEnds[profile.segmentCount - 1] = duration;
+            return;
+        }
+        double factor = tEnd / duration;
+        for (int j = 0; j < profile.segmentCount; j++) {
+            profile.tStarts[j] /= factor;
+            profile.tEnds[j] /= factor;
+            profile.startVelocities[j] *= factor;
+            profile.accels[j] *= factor * factor;
+        }
+        profile.tEnds[profile.segmentCount - 1] = duration;
+    }
+
+    /**
+     * @param profile    a profile starting at 0
+     * @param boundaries the ends of the segments of the new profile
+     * @param tStart     the time the new profile starts at
+     * @return the same profile, split to segments ending at each of the boundaries
+     */
+    private static MotionProfile1D split(MotionProfile1D profile, double[] boundaries, double tStart) {
+        MotionProfile1D ret = new MotionProfile1D(boundaries.length);
+        int index = 0;
+        double start = 0;
+        for (double end : boundaries) {
+            // The segment the middle of this one is in
+            double middle = 0.5 * (start + end);
+            while (index < profile.segmentCount - 1 && profile.tEnds[index] < middle)
+                index++;
+            ret.addSegment(tStart + start, tStart + end, profile.getAccelerationAt(index, start),
+                    profile.getVelocityAt(index, start), profile.getLocationAt(index, start));
+            start = end;
+        }
+        return ret;
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.greenblitz.motion.profiling;
+
+import org.greenblitz.motion.interpolation.Dataset;
+
+import java.util.Arrays;
+
+/**
+ * An interpolator made from the real motor curve: recorded (velocity, maximal acceleration) points of a
+ * drivetrain characterization. The points are resampled once to a uniformly spaced table, so getting the
+ * acceleration is a single index computation and a linear interpolation, no matter how many points were recorded.
+ * <p>
+ * Velocities outside of the recorded range get the acceleration at the nearest end of it, and the returned
+ * acceleration is never more than the given maximumInitialAccel, so the per sub-curve limits (e.g. by curvature)
+ * still apply. maximumAsymptoticVelocity isn't used, the table already holds it.
+ *
+ * @see ProfilingData#ProfilingData(double, double, double, double, AccelerationInterpolator)
+ */
+public class TabulatedAccelerationInterpolator implements AccelerationInterpolator {
+
+    public static final int DEFAULT_TABLE_SIZE = 256;
+
+    private final double[] table;
+    private final double minVelocity, maxVelocity;
+    private final double samplesPerVelocity;
+    private final String cacheKey;
+
+    /**
+     * @param data the recorded points, velocity as the input and the maximal acceleration as the only output
+     */
+    public TabulatedAccelerationInterpolator(Dataset data) {
+        this(data, DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * @param data      the recorded points, velocity as the input and the maximal acceleration as the only output
+     * @param tableSize the amount of uniformly spaced samples to resample the points to
+     */
+    public TabulatedAccelerationInterpolator(Dataset data, int tableSize) {
+        if (data.getDimension() != 2)
+            throw new IllegalArgumentException("The dataset must be of (velocity, acceleration) points");
+        if (data.size() < 2)
+            throw new IllegalArgumentException("The dataset must have at least 2 points");
+        if (tableSize < 2)
+            throw new IllegalArgumentException("The table must have at least 2 samples");
+        minVelocity = data.getMinX();
+        maxVelocity = data.getMaxX();
+        table = new double[tableSize];
+        double step = (maxVelocity - minVelocity) / (tableSize - 1);
+        for (int i = 0; i < tableSize; i++) {
+            // The last sample is taken exactly at the end so rounding won't take it out of the dataset's range
+            double velocity = i == tableSize - 1 ? maxVelocity : Math.min(minVelocity + i * step, maxVelocity);
+            table[i] = data.linearlyInterpolate(velocity)[0];
+        }
+        samplesPerVelocity = 1 / step;
+        cacheKey = "TabulatedAccelerationInterpolator(" + minVelocity + "," + maxVelocity + "," + Arrays.toString(table) + ")";
+    }
+
+    @Override
+    public double getRealMaxAccel(double currentVelocity, double maximumAsymptoticVelocity, double maximumInitialAccel) {
+        double position = (currentVelocity - minVelocity) * samplesPerVelocity;
+        double accel;
+        if (position <= 0) {
+            accel = table[0];
+        } else if (position >= table.length - 1) {
+            accel = table[table.length - 1];
+        } else {
+            int index = (int) position;
+            accel = table[index] + (table[index + 1] - table[index]) * (position - index);
+        }
+        return Math.min(accel, maximumInitialAccel);
+    }
+
+    public double getMinVelocity() {
+        return minVelocity;
+    }
+
+    public double getMaxVelocity() {
+        return maxVelocity;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    @Override
+    public String toString() {
+        return "TabulatedAccelerationInterpolator{" +
+                "minVelocity=" + minVelocity +
+                ", maxVelocity=" + maxVelocity +
+                ", tableSize=" + table.length +
+                '}';
+    }
+}
@@ -0,0 +1,47 @@
+package org.greenblitz.motion.profiling.constraints;
+
+/**
+ * Limits the total acceleration of the robot, so it won't slip in turns. The centripetal acceleration
+ * (v^2 * curvature) and the linear acceleration are both taken out of the same budget, so the robot slows down
+ * before a turn and only accelerates out of it as much as the grip left by the turn allows.
+ */
+public class CentripetalAccelerationConstraint implements TimingConstraint {
+
+    private final double maxAcceleration;
+
+    /**
+     * @param maxAcceleration the maximal total acceleration before the wheels slip, in m/s^2
+     */
+    public CentripetalAccelerationConstraint(double maxAcceleration) {
+        if (maxAcceleration <= 0)
+            throw new IllegalArgumentException("max acceleration must be positive");
+        this.maxAcceleration = maxAcceleration;
+    }
+
+    @Override
+    public double getMaxVelocity(double distance, double x, double y, double curvature) {
+        if (curvature == 0)
+            return Double.POSITIVE_INFINITY;
+        return Math.sqrt(maxAcceleration / Math.abs(curvature));
+    }
+
+    @Override
+    public double getMaxAcceleration(double distance, double x, double y, double curvature, double velocity) {
+        double centripetal = velocity * velocity * Math.abs(curvature);
+        if (centripetal >= maxAcceleration)
+            return 0;
+        return Math.sqrt(maxAcceleration * maxAcceleration - centripetal * centripetal);
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "CentripetalAccelerationConstraint(" + maxAcceleration + ")";
+    }
+
+    @Override
+    public String toString() {
+        return "CentripetalAccelerationConstraint{" +
+                "maxAcceleration=" + maxAcceleration +
+                '}';
+    }
+}
@@ -0,0 +1,63 @@
+package org.greenblitz.motion.profiling.constraints;
+
+import org.greenblitz.motion.base.Point;
+
+/**
+ * A speed zone: limits the linear velocity while the robot is inside a rectangle of the field (e.g. near the
+ * loading station or under an obstacle), and doesn't limit it anywhere else.
+ */
+public class FieldRegionConstraint implements TimingConstraint {
+
+    private final double minX, minY, maxX, maxY;
+    private final double maxVelocity;
+
+    /**
+     * @param corner         a corner of the rectangle
+     * @param oppositeCorner the opposite corner of the rectangle
+     * @param maxVelocity    the maximal linear velocity inside the rectangle
+     */
+    public FieldRegionConstraint(Point corner, Point oppositeCorner, double maxVelocity) {
+        if (maxVelocity <= 0)
+            throw new IllegalArgumentException("max velocity must be positive");
+        minX = Math.min(corner.getX(), oppositeCorner.getX());
+        minY = Math.min(corner.getY(), oppositeCorner.getY());
+        maxX = Math.max(corner.getX(), oppositeCorner.getX());
+        maxY = Math.max(corner.getY(), oppositeCorner.getY());
+        this.maxVelocity = maxVelocity;
+    }
+
+    /**
+     * @param x
+     * @param y
+     * @return whether that location is inside the rectangle
+     */
+    public boolean isInside(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    @Override
+    public double getMaxVelocity(double distance, double x, double y, double curvature) {
+        return isInside(x, y) ? maxVelocity : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public double getMaxAcceleration(double distance, double x, double y, double curvature, double velocity) {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "FieldRegionConstraint(" + minX + "," + minY + "," + maxX + "," + maxY + "," + maxVelocity + ")";
+    }
+
+    @Override
+    public String toString() {
+        return "FieldRegionConstraint{" +
+                "minX=" + minX +
+                ", minY=" + minY +
+                ", maxX=" + maxX +
+                ", maxY=" + maxY +
+                ", maxVelocity=" + maxVelocity +
+                '}';
+    }
+}
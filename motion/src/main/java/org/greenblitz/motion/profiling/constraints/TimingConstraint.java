@@ -0,0 +1,48 @@
+package org.greenblitz.motion.profiling.constraints;
+
+import org.greenblitz.motion.profiling.AccelerationInterpolator;
+
+/**
+ * A limit on the linear velocity and acceleration of the robot along a path, on top of the limits of
+ * ProfilingData. At every sub-curve of the path, the velocity graph uses the smallest limits of all constraints,
+ * so a constraint only has to describe where and how it limits the robot, and the rest of the path can still
+ * be driven at the global limits.
+ * <p>
+ * Constraints are evaluated for every sub-curve (and the acceleration for every pass over it), possibly on many
+ * threads at once, so they should be cheap and must not keep any state.
+ */
+public interface TimingConstraint {
+
+    /**
+     * @param distance  the distance along the path from it's start to the start of the sub-curve
+     * @param x         the x coordinate of the middle of the sub-curve
+     * @param y         the y coordinate of the middle of the sub-curve
+     * @param curvature the curvature of the sub-curve
+     * @return the maximal linear velocity along the sub-curve, Double.POSITIVE_INFINITY if it isn't limited
+     */
+    double getMaxVelocity(double distance, double x, double y, double curvature);
+
+    /**
+     * @param distance  the distance along the path from it's start to the start of the sub-curve
+     * @param x         the x coordinate of the middle of the sub-curve
+     * @param y         the y coordinate of the middle of the sub-curve
+     * @param curvature the curvature of the sub-curve
+     * @param velocity  the current linear velocity. Like in AccelerationInterpolator, it's negated when
+     *                  decelerating, so it's sign tells whether the acceleration is with or against the motion.
+     * @return the maximal linear acceleration (or deceleration) at that velocity, not negative.
+     * Double.POSITIVE_INFINITY if it isn't limited.
+     * @see AccelerationInterpolator#getRealMaxAccel(double, double, double)
+     */
+    double getMaxAcceleration(double distance, double x, double y, double curvature, double velocity);
+
+    /**
+     * Profiles are only cached (see ProfileCache) when all of their constraints have a cache key.
+     *
+     * @return a string which identifies this constraint and all of it's parameters exactly,
+     * or null if profiles generated with it shouldn't be cached. null by default.
+     */
+    default String getCacheKey() {
+        return null;
+    }
+
+}
@@ -0,0 +1,67 @@
+package org.greenblitz.motion.profiling.constraints;
+
+/**
+ * Keeps the voltage the faster (outer) wheel needs, by the feedforward model V = kS + kV * v + kA * a,
+ * within a budget. With a budget a bit under the nominal battery voltage (e.g. 10V), the profile stays
+ * drivable when the battery sags, instead of having to lower the global limits for the whole path.
+ * <p>
+ * In a turn the outer wheel moves faster than the center of the robot by a factor of
+ * 1 + |curvature| * trackWidth / 2, so both the velocity and the acceleration are limited by it.
+ */
+public class VoltageConstraint implements TimingConstraint {
+
+    private final double kS, kV, kA;
+    private final double maxVoltage;
+    private final double trackWidth;
+
+    /**
+     * @param kS         the voltage needed to start moving, in volts
+     * @param kV         the voltage per velocity of a wheel, in volts/(m/s)
+     * @param kA         the voltage per acceleration of a wheel, in volts/(m/s^2)
+     * @param maxVoltage the voltage budget, in volts
+     * @param trackWidth the distance between the left and right wheels, in meters
+     */
+    public VoltageConstraint(double kS, double kV, double kA, double maxVoltage, double trackWidth) {
+        if (kV <= 0 || kA <= 0)
+            throw new IllegalArgumentException("kV and kA must be positive");
+        if (maxVoltage <= kS)
+            throw new IllegalArgumentException("The voltage budget must be bigger than kS");
+        this.kS = kS;
+        this.kV = kV;
+        this.kA = kA;
+        this.maxVoltage = maxVoltage;
+        this.trackWidth = trackWidth;
+    }
+
+    private double getOuterWheelRatio(double curvature) {
+        return 1 + Math.abs(curvature) * trackWidth * 0.5;
+    }
+
+    @Override
+    public double getMaxVelocity(double distance, double x, double y, double curvature) {
+        return (maxVoltage - kS) / (kV * getOuterWheelRatio(curvature));
+    }
+
+    @Override
+    public double getMaxAcceleration(double distance, double x, double y, double curvature, double velocity) {
+        // When decelerating the velocity is negative, so the back EMF adds to the budget instead of taking from it
+        double ratio = getOuterWheelRatio(curvature);
+        return Math.max(0, (maxVoltage - kS - kV * ratio * velocity) / (kA * ratio));
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "VoltageConstraint(" + kS + "," + kV + "," + kA + "," + maxVoltage + "," + trackWidth + ")";
+    }
+
+    @Override
+    public String toString() {
+        return "VoltageConstraint{" +
+                "kS=" + kS +
+                ", kV=" + kV +
+                ", kA=" + kA +
+                ", maxVoltage=" + maxVoltage +
+                ", trackWidth=" + trackWidth +
+                '}';
+    }
+}
@@ -0,0 +1,82 @@
+package org.greenblitz.motion.profiling.curve;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Integrates the speed of a curve (the norm of it's derivative) to get it's length.
+ * <p>
+ * Every range is integrated with a 5 point Gauss-Legendre quadrature, which is exact for polynomials up to
+ * degree 9, and is halved until the halves agree with the whole. Only ranges where the speed changes sharply
+ * (e.g. near a cusp) are halved more than once.
+ * See https://en.wikipedia.org/wiki/Gaussian_quadrature
+ */
+public final class ArcLengthIntegrator {
+
+    /**
+     * 5 point Gauss-Legendre quadrature on [-1, 1]
+     */
+    private static final double[] GAUSS_NODES = {
+            -0.9061798459386640, -0.5384693101056831, 0, 0.5384693101056831, 0.9061798459386640};
+    private static final double[] GAUSS_WEIGHTS = {
+            0.2369268850561891, 0.4786286704993665, 0.5688888888888889, 0.4786286704993665, 0.2369268850561891};
+
+    /**
+     * A range is halved until the halves agree with the whole up to this (in length units), or
+     * it was halved MAX_DEPTH times.
+     */
+    private static final double TOLERANCE = 1E-10;
+    private static final int MAX_DEPTH = 24;
+
+    private ArcLengthIntegrator() {
+    }
+
+    /**
+     * @param speed the speed of the curve at every value of it's parameter
+     * @param from  start of the range
+     * @param to    end of the range
+     * @return the integral of the speed over the range, negative if to is before from
+     */
+    public static double integrate(DoubleUnaryOperator speed, double from, double to) {
+        return integrate(speed, from, to, gaussLegendre(speed, from, to), MAX_DEPTH);
+    }
+
+    /**
+     * The first halving of integrate(speed, from, to), with both halves kept.
+     *
+     * @param out where the length of the first half and of the whole range are written, or null
+     * @return the length of the whole range
+     */
+    public static double integrateHalves(DoubleUnaryOperator speed, double from, double to, double[] out) {
+        double middle = 0.5 * (from + to);
+        double first = gaussLegendre(speed, from, middle);
+        double second = gaussLegendre(speed, middle, to);
+        if (Math.abs(first + second - gaussLegendre(speed, from, to)) > TOLERANCE) {
+            first = integrate(speed, from, middle, first, MAX_DEPTH);
+            second = integrate(speed, middle, to, second, MAX_DEPTH);
+        }
+        if (out != null) {
+            out[0] = first;
+            out[1] = first + second;
+        }
+        return first + second;
+    }
+
+    private static double integrate(DoubleUnaryOperator speed, double from, double to, double whole, int depth) {
+        double middle = 0.5 * (from + to);
+        double left = gaussLegendre(speed, from, middle);
+        double right = gaussLegendre(speed, middle, to);
+        if (depth == 0 || Math.abs(left + right - whole) <= TOLERANCE)
+            return left + right;
+        return integrate(speed, from, middle, left, depth - 1) + integrate(speed, middle, to, right, depth - 1);
+    }
+
+    private static double gaussLegendre(DoubleUnaryOperator speed, double from, double to) {
+        double halfSize = 0.5 * (to - from);
+        double middle = from + halfSize;
+        double sum = 0;
+        for (int i = 0; i < GAUSS_NODES.length; i++)
+            sum += GAUSS_WEIGHTS[i] * speed.applyAsDouble(middle + halfSize * GAUSS_NODES[i]);
+        return sum * halfSize;
+    }
+
+}
@@ -0,0 +1,123 @@
+package org.greenblitz.motion.profiling.curve;
+
+import org.greenblitz.motion.base.Point;
+
+/**
+ * Maps distance along a curve to the curve's parameter u and back, so the curve can be queried by distance.
+ * <p>
+ * The length up to evenly spaced values of u is sampled once into primitive arrays. Going from a distance to u
+ * is a binary search in those samples followed by a few Newton iterations on the length from the sample before
+ * it (ICurve#getLength(double, double), with ICurve#getSpeed(double) as the derivative), so the result is as
+ * accurate as the curve's own length and not only as accurate as the samples.
+ */
+public class ArcLengthTable {
+
+    public static final int DEFAULT_SAMPLES = 64;
+
+    private static final int MAX_NEWTON_ITERATIONS = 8;
+    private static final double DISTANCE_TOLERANCE = 1E-9;
+
+    private final ICurve curve;
+    /**
+     * lengths[i] is the length of the curve up to u = i / samples. Never decreasing.
+     */
+    private final double[] lengths;
+    private final int samples;
+
+    /**
+     * @param curve the curve
+     * @see ArcLengthTable#ArcLengthTable(ICurve, int)
+     */
+    public ArcLengthTable(ICurve curve) {
+        this(curve, DEFAULT_SAMPLES);
+    }
+
+    /**
+     * @param curve   the curve
+     * @param samples how many parts to divide the curve to. More samples mean less Newton iterations.
+     */
+    public ArcLengthTable(ICurve curve, int samples) {
+        if (samples < 1)
+            throw new IllegalArgumentException("There must be at least one sample, got " + samples);
+        this.curve = curve;
+        this.samples = samples;
+        lengths = new double[samples + 1];
+        for (int i = 1; i <= samples; i++)
+            lengths[i] = Math.max(lengths[i - 1], curve.getLength((double) i / samples));
+    }
+
+    /**
+     * @return The curve this table is of
+     */
+    public ICurve getCurve() {
+        return curve;
+    }
+
+    /**
+     * @return The length of the whole curve
+     */
+    public double getLength() {
+        return lengths[samples];
+    }
+
+    /**
+     * @param u in the range [0, 1] representing the location on the curve.
+     * @return the length of the arc up to that point, the same as ICurve#getLength(double)
+     */
+    public double getDistance(double u) {
+        return curve.getLength(u);
+    }
+
+    /**
+     * @param distance the length of the arc from the start of the curve. Clamped to the curve.
+     * @return the u at which the length of the arc is that distance
+     */
+    public double getU(double distance) {
+        if (distance <= 0)
+            return 0;
+        if (distance >= lengths[samples])
+            return 1;
+
+        // The last sample which isn't after the distance
+        int low = 0, high = samples;
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (lengths[middle] <= distance)
+                low = middle;
+            else
+                high = middle;
+        }
+        double uSample = (double) low / samples;
+        double uLow = uSample, uHigh = (double) high / samples;
+        double sampleLength = lengths[high] - lengths[low];
+        if (sampleLength == 0)
+            return uLow;
+
+        // Newton's method, kept within the samples around the distance
+        double u = uLow + (uHigh - uLow) * (distance - lengths[low]) / sampleLength;
+        for (int i = 0; i < MAX_NEWTON_ITERATIONS; i++) {
+            // Only the part after the sample is integrated, not the whole curve up to u
+            double error = lengths[low] + (u > uSample ? curve.getLength(uSample, u) : 0) - distance;
+            if (Math.abs(error) <= DISTANCE_TOLERANCE)
+                break;
+            if (error > 0)
+                uHigh = u;
+            else
+                uLow = u;
+            double speed = curve.getSpeed(u);
+            double next = speed > 0 ? u - error / speed : Double.NaN;
+            // Bisecting when Newton's step leaves the range the answer is known to be in
+            u = next > uLow && next < uHigh ? next : 0.5 * (uLow + uHigh);
+        }
+        return u;
+    }
+
+    /**
+     * @param distance the length of the arc from the start of the curve. Clamped to the curve.
+     * @return the location at that distance along the curve
+     */
+    public Point getLocationAtDistance(double distance) {
+        return curve.getLocation(getU(distance));
+    }
+
+}
@@ -0,0 +1,219 @@
+package org.greenblitz.motion.profiling.curve;
+
+import org.greenblitz.motion.base.Point;
+import org.greenblitz.motion.base.State;
+import org.greenblitz.motion.profiling.curve.spline.PolynomialCurve;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A Bezier curve of any degree, with the control points kept in flat arrays.
+ * <p>
+ * The location and the derivatives (which are Bezier curves of lower degree, with control points calculated once
+ * in the constructor) are evaluated with a Horner-like scheme in O(degree) and without allocating.
+ * Sub-curves are made with de Casteljau's algorithm, in O(degree^2), and are Bezier curves themselves.
+ * <p>
+ * See https://en.wikipedia.org/wiki/B%C3%A9zier_curve
+ */
+public class BezierCurve implements ICurve {
+
+    private final int degree;
+    /**
+     * The control points, x[i] and y[i] are the i'th one
+     */
+    private final double[] x, y;
+    /**
+     * The control points of the first and second derivatives
+     */
+    private final double[] dx, dy, ddx, ddy;
+    /**
+     * The norm of the derivative, for ArcLengthIntegrator
+     */
+    private final DoubleUnaryOperator speed = this::getSpeed;
+    /**
+     * The length of the whole curve, calculated on first use
+     */
+    private volatile double length = Double.NaN;
+
+    /**
+     * @param x the x of the control points, the first is the start of the curve and the last is it's end
+     * @param y the y of the control points
+     */
+    public BezierCurve(double[] x, double[] y) {
+        if (x.length != y.length)
+            throw new IllegalArgumentException("Got " + x.length + " x values but " + y.length + " y values");
+        if (x.length < 2)
+            throw new IllegalArgumentException("A curve needs at least two control points, got " + x.length);
+        degree = x.length - 1;
+        this.x = x.clone();
+        this.y = y.clone();
+        dx = differences(this.x);
+        dy = differences(this.y);
+        ddx = differences(dx);
+        ddy = differences(dy);
+    }
+
+    /**
+     * @param points the control points, the first is the start of the curve and the last is it's end
+     */
+    public BezierCurve(Point... points) {
+        this(getXs(points), getYs(points));
+    }
+
+    /**
+     * A cubic curve between two states, going out of start and into end at their angles. The derivatives at
+     * the ends are the same as those of QuinticSplineGenerator#generateSpline(State, State, double) with the same
+     * t, but the second derivatives (and so the curvature) at the ends are not controlled.
+     *
+     * @param start the start of the curve
+     * @param end   the end of the curve
+     * @param t     the size of the derivatives at the ends
+     * @return the curve
+     */
+    public static BezierCurve cubic(State start, State end, double t) {
+        double handle = t / 3;
+        return new BezierCurve(
+                new double[]{start.getX(), start.getX() + handle * Math.sin(start.getAngle()),
+                        end.getX() - handle * Math.sin(end.getAngle()), end.getX()},
+                new double[]{start.getY(), start.getY() + handle * Math.cos(start.getAngle()),
+                        end.getY() - handle * Math.cos(end.getAngle()), end.getY()});
+    }
+
+    private static double[] getXs(Point[] points) {
+        double[] ret = new double[points.length];
+        for (int i = 0; i < points.length; i++)
+            ret[i] = points[i].getX();
+        return ret;
+    }
+
+    private static double[] getYs(Point[] points) {
+        double[] ret = new double[points.length];
+        for (int i = 0; i < points.length; i++)
+            ret[i] = points[i].getY();
+        return ret;
+    }
+
+    /**
+     * @return the control points of the derivative of a curve with the given control points
+     */
+    private static double[] differences(double[] points) {
+        int n = points.length - 1;
+        double[] ret = new double[Math.max(n, 1)];
+        for (int i = 0; i < n; i++)
+            ret[i] = n * (points[i + 1] - points[i]);
+        return ret;
+    }
+
+    /**
+     * Evaluates a Bezier curve with the given control points without de Casteljau's intermediate points,
+     * by nesting the Bernstein polynomials like Horner's method does.
+     */
+    private static double evaluate(double[] points, double u) {
+        int n = points.length - 1;
+        if (n == 0)
+            return points[0];
+        double s = 1 - u;
+        double power = 1, binomial = 1;
+        double ret = points[0] * s;
+        for (int i = 1; i < n; i++) {
+            power *= u;
+            binomial = binomial * (n - i + 1) / i;
+            ret = (ret + power * binomial * points[i]) * s;
+        }
+        return ret + power * u * points[n];
+    }
+
+    public int getDegree() {
+        return degree;
+    }
+
+    /**
+     * @param i the index of the control point
+     * @return the control point
+     */
+    public Point getControlPoint(int i) {
+        return new Point(x[i], y[i]);
+    }
+
+    @Override
+    public Point getLocation(double u) {
+        return new Point(evaluate(x, u), evaluate(y, u));
+    }
+
+    @Override
+    public void getLocation(double u, double[] out) {
+        out[0] = evaluate(x, u);
+        out[1] = evaluate(y, u);
+    }
+
+    @Override
+    public double getLength(double u) {
+        if (u == 1)
+            return getLength();
+        return ArcLengthIntegrator.integrate(speed, 0, u);
+    }
+
+    @Override
+    public double getLength(double uStart, double uEnd) {
+        return ArcLengthIntegrator.integrate(speed, uStart, uEnd);
+    }
+
+    private double getLength() {
+        double ret = length;
+        if (Double.isNaN(ret)) {
+            // Calculating it twice from different threads is harmless, the result is the same
+            ret = ArcLengthIntegrator.integrate(speed, 0, 1);
+            length = ret;
+        }
+        return ret;
+    }
+
+    @Override
+    public double getSpeed(double u) {
+        double speedX = evaluate(dx, u), speedY = evaluate(dy, u);
+        return Math.sqrt(speedX * speedX + speedY * speedY);
+    }
+
+    @Override
+    public double getAngle(double u) {
+        return Math.atan2(evaluate(dy, u), evaluate(dx, u));
+    }
+
+    @Override
+    public double getCurvature() {
+        return (getCurvature(0) + getCurvature(0.5) + getCurvature(1)) / 3.0;
+    }
+
+    @Override
+    public double getCurvature(double u) {
+        if (degree < 2)
+            return 0;
+        return PolynomialCurve.getCurvature(evaluate(dx, u), evaluate(dy, u), evaluate(ddx, u), evaluate(ddy, u));
+    }
+
+    /**
+     * Splits the control points with de Casteljau's algorithm, first at uEnd and then the left part at
+     * uStart relative to it.
+     */
+    @Override
+    public BezierCurve getSubCurve(double uStart, double uEnd) {
+        double[] subX = x.clone(), subY = y.clone();
+        // Keeps the left part, [0, uEnd]
+        for (int level = 1; level <= degree; level++) {
+            for (int i = degree; i >= level; i--) {
+                subX[i] = subX[i - 1] + uEnd * (subX[i] - subX[i - 1]);
+                subY[i] = subY[i - 1] + uEnd * (subY[i] - subY[i - 1]);
+            }
+        }
+        // Keeps the right part, [uStart / uEnd, 1] of the left part
+        double relativeStart = uEnd == 0 ? 0 : uStart / uEnd;
+        for (int level = 1; level <= degree; level++) {
+            for (int i = 0; i <= degree - level; i++) {
+                subX[i] = subX[i] + relativeStart * (subX[i + 1] - subX[i]);
+                subY[i] = subY[i] + relativeStart * (subY[i + 1] - subY[i]);
+            }
+        }
+        return new BezierCurve(subX, subY);
+    }
+
+}
@@ -25,12 +25,73 @@ public interface ICurve {
      */
     Point getLocation(double u);
 
+    /**
+     * Same as getLocation(double), but writes the location into out instead of allocating a point.
+     *
+     * @param u   in the range [0, 1] representing the location on the curve.
+     * @param out where x and y are written, at index 0 and 1
+     */
+    default void getLocation(double u, double[] out) {
+        Point location = getLocation(u);
+        out[0] = location.getX();
+        out[1] = location.getY();
+    }
+
+    /**
+     * Evaluates the curve at many points at once. Implementations should override this when they can do it
+     * faster than point by point.
+     *
+     * @param u            the points, each in the range [0, 1] representing the location on the curve.
+     * @param outX         where the x of each point is written
+     * @param outY         where the y of each point is written
+     * @param outCurvature where the curvature at each point is written, or null if it isn't needed
+     */
+    default void evaluate(double[] u, double[] outX, double[] outY, double[] outCurvature) {
+        double[] location = new double[2];
+        for (int i = 0; i < u.length; i++) {
+            getLocation(u[i], location);
+            outX[i] = location[0];
+            outY[i] = location[1];
+            if (outCurvature != null)
+                outCurvature[i] = getCurvature(u[i]);
+        }
+    }
+
     /**
      * @param u in the range [0, 1] representing the location on the curve.
      * @return the length of the arc up to the given point
      */
     double getLength(double u);
 
+    /**
+     * The same as getSubCurve(uStart, uEnd).getLength(1), without necessarily creating the sub-curve.
+     *
+     * @param uStart in the range [0, 1) representing the start location on the curve.
+     * @param uEnd   in the range (0, 1] representing the end location on the curve. uEnd bigger than uStart.
+     * @return the length of the arc between the two points
+     */
+    default double getLength(double uStart, double uEnd) {
+        return getSubCurve(uStart, uEnd).getLength(1);
+    }
+
+    /**
+     * The derivative of getLength(u) by u. Implementations should override this with the exact derivative,
+     * this default only approximates it from two nearby locations.
+     *
+     * @param u in the range [0, 1] representing the location on the curve.
+     * @return the norm of the derivative of the location by u at that point
+     */
+    default double getSpeed(double u) {
+        double step = 1E-6;
+        double before = Math.max(0, u - step);
+        double after = Math.min(1, u + step);
+        double[] location = new double[2];
+        getLocation(before, location);
+        double beforeX = location[0], beforeY = location[1];
+        getLocation(after, location);
+        return Math.hypot(location[0] - beforeX, location[1] - beforeY) / (after - before);
+    }
+
     /**
      * @param u in the range [0, 1] representing the location on the curve.
      * @return the angle of the tangent line to the given point on the curve
@@ -3,8 +3,11 @@ package org.greenblitz.motion.profiling.curve.spline;
 import org.greenblitz.motion.base.Point;
 import org.greenblitz.motion.base.Vector2D;
 import org.greenblitz.motion.profiling.curve.AbstractCurve;
+import org.greenblitz.motion.profiling.curve.ArcLengthIntegrator;
 import org.greenblitz.motion.profiling.curve.ICurve;
 
+import java.util.function.DoubleUnaryOperator;
+
 /**
  * @author peleg
  */
@@ -31,6 +34,14 @@ public class PolynomialCurve extends AbstractCurve {
      * of degree 2 is a parabola.
      */
     private int rank;
+    /**
+     * The length of the first half of the curve and of the whole curve. Calculated on first use.
+     */
+    private volatile double[] lengthTable;
+    /**
+     * What ArcLengthIntegrator integrates, kept so it isn't created on every call
+     */
+    private final DoubleUnaryOperator speed = this::getSpeedInternal;
 
     /**
      * @param rank     Highest degree with non-zero coef. Must be 0 or bigger.
@@ -55,6 +66,22 @@ public class PolynomialCurve extends AbstractCurve {
         }
     }
 
+    /**
+     * A sub-curve of parent, which shares it's coefficients instead of copying them (they are never changed).
+     *
+     * @param parent the curve to take the coefficients from
+     * @param uStart The start of the range, already scaled
+     * @param uEnd   The end of the range, already scaled
+     */
+    private PolynomialCurve(PolynomialCurve parent, double uStart, double uEnd) {
+        x = parent.x;
+        y = parent.y;
+        tScaling = parent.tScaling;
+        rank = parent.rank;
+        this.uStart = uStart;
+        this.uEnd = uEnd;
+    }
+
     /**
      * @param rank
      * @param xArr
@@ -76,6 +103,114 @@ public class PolynomialCurve extends AbstractCurve {
         return new Point(xVal, yVal);
     }
 
+    @Override
+    public void getLocation(double u, double[] out) {
+        getLocationInter(clamp(u), out);
+    }
+
+    /**
+     * @param u   the "time" param
+     * @param out where x and y are written, at index 0 and 1
+     */
+    public void getLocationInter(double u, double[] out) {
+        double xVal = 0;
+        double yVal = 0;
+        for (int i = rank; i >= 0; i--) {
+            xVal = u * xVal + x[i];
+            yVal = u * yVal + y[i];
+        }
+        out[0] = xVal;
+        out[1] = yVal;
+    }
+
+    /**
+     * Evaluates the location and the first and second derivatives in a single pass over the coefficients.
+     *
+     * @param u   in the range [0, 1] representing the location on the curve.
+     * @param out where {x, y, dx, dy, ddx, ddy} are written, at indices 0 to 5
+     */
+    public void evaluate(double u, double[] out) {
+        evaluateInter(clamp(u), out);
+    }
+
+    /**
+     * @param u   the "time" param
+     * @param out where {x, y, dx, dy, ddx, ddy} are written, at indices 0 to 5
+     * @see PolynomialCurve#evaluate(double, double[])
+     */
+    public void evaluateInter(double u, double[] out) {
+        double xVal = x[rank], dx = 0, ddx = 0;
+        double yVal = y[rank], dy = 0, ddy = 0;
+        for (int i = rank - 1; i >= 0; i--) {
+            ddx = u * ddx + dx;
+            dx = u * dx + xVal;
+            xVal = u * xVal + x[i];
+            ddy = u * ddy + dy;
+            dy = u * dy + yVal;
+            yVal = u * yVal + y[i];
+        }
+        out[0] = xVal;
+        out[1] = yVal;
+        out[2] = dx;
+        out[3] = dy;
+        out[4] = 2 * ddx;
+        out[5] = 2 * ddy;
+    }
+
+    /**
+     * Evaluates the curve at many points at once. Gives exactly the same values as calling evaluate(double, double[])
+     * and getCurvature(double, double, double, double) for each point, but in one tight loop over primitive arrays
+     * with no allocations and no virtual calls.
+     *
+     * @param u            the points, each in the range [0, 1] representing the location on the curve.
+     * @param outX         where the x of each point is written
+     * @param outY         where the y of each point is written
+     * @param outCurvature where the curvature at each point is written, or null if it isn't needed
+     */
+    @Override
+    public void evaluate(double[] u, double[] outX, double[] outY, double[] outCurvature) {
+        int count = u.length;
+        if (outX.length < count || outY.length < count || (outCurvature != null && outCurvature.length < count))
+            throw new IndexOutOfBoundsException("Output arrays are shorter than the " + count + " points");
+
+        double[] x = this.x, y = this.y;
+        int rank = this.rank;
+        double scale = uEnd - uStart;
+        // Two loops, so the curvature check isn't repeated for every point and the derivatives are only
+        // calculated when they're needed
+        if (outCurvature == null) {
+            for (int j = 0; j < count; j++) {
+                double t = u[j] * scale + uStart;
+                double xVal = x[rank];
+                double yVal = y[rank];
+                for (int i = rank - 1; i >= 0; i--) {
+                    xVal = t * xVal + x[i];
+                    yVal = t * yVal + y[i];
+                }
+                outX[j] = xVal;
+                outY[j] = yVal;
+            }
+            return;
+        }
+        for (int j = 0; j < count; j++) {
+            // The same Horner steps as evaluateInter, kept in registers
+            double t = u[j] * scale + uStart;
+            double xVal = x[rank], dx = 0, ddx = 0;
+            double yVal = y[rank], dy = 0, ddy = 0;
+            for (int i = rank - 1; i >= 0; i--) {
+                ddx = t * ddx + dx;
+                dx = t * dx + xVal;
+                xVal = t * xVal + x[i];
+                ddy = t * ddy + dy;
+                dy = t * dy + yVal;
+                yVal = t * yVal + y[i];
+            }
+            outX[j] = xVal;
+            outY[j] = yVal;
+            outCurvature[j] = getCurvature(dx, dy, 2 * ddx, 2 * ddy);
+        }
+    }
+
     /**
      * @param u the "time" param
      * @return the vector of partial derivatives at that point
@@ -90,6 +225,21 @@ public class PolynomialCurve extends AbstractCurve {
         return new Vector2D(xVal, yVal);
     }
 
+    /**
+     * @param u   the "time" param
+     * @param out where the partial derivatives by x and y are written, at index 0 and 1
+     */
+    public void getDerivativeInter(double u, double[] out) {
+        double xVal = 0;
+        double yVal = 0;
+        for (int i = rank; i > 0; i--) {
+            xVal = u * xVal + i * x[i];
+            yVal = u * yVal + i * y[i];
+        }
+        out[0] = xVal;
+        out[1] = yVal;
+    }
+
     /**
      * @param u the "time" param
      * @return the vector of second partial derivative
@@ -105,27 +255,78 @@ public class PolynomialCurve extends AbstractCurve {
     }
 
     /**
-     * Assumes constant curvature. to calculate actual length you will actually die.
+     * @param u   the "time" param
+     * @param out where the second partial derivatives by x and y are written, at index 0 and 1
+     */
+    public void getDoubleDerivativeInter(double u, double[] out) {
+        double xVal = 0;
+        double yVal = 0;
+        for (int i = rank; i > 1; i--) {
+            xVal = u * xVal + (i - 1) * i * x[i];
+            yVal = u * yVal + (i - 1) * i * y[i];
+        }
+        out[0] = xVal;
+        out[1] = yVal;
+    }
+
+    /**
+     * Integrates the speed (the norm of the derivative) with Gauss-Legendre quadrature. The lengths of the
+     * halves of the curve are calculated once and remembered, so the length of the whole curve is free after
+     * the first time and otherwise at most part of one half is integrated.
      *
      * @param u
      * @return
      */
     @Override
     protected double getLengthInternal(double u) {
-        double length = Point.dist(getLocationInternal(u),
-                getLocationInternal(uStart));
-        double curvature = getCurvature();
-        if (Point.isFuzzyEqual(curvature, 0, 1E-3))
-            return length;
-        if (Math.abs(length * curvature / 2) > 1)
-            throw new RuntimeException("len * curve / 2 is too big");
-        return 2 / curvature * Math.asin(length * curvature / 2);
+        double half = 0.5 * (uEnd - uStart);
+        double position = half == 0 ? -1 : (u - uStart) / half;
+        if (!(position >= 0 && position <= 2 + 1E-12))
+            // Outside of the curve, not worth remembering
+            return ArcLengthIntegrator.integrate(speed, uStart, u);
+
+        double[] table = getLengthTable();
+        if (position >= 2 - 1E-12)
+            return table[1];
+        if (position < 1)
+            return ArcLengthIntegrator.integrate(speed, uStart, u);
+        return table[0] + ArcLengthIntegrator.integrate(speed, uStart + half, u);
+    }
+
+    private double[] getLengthTable() {
+        double[] table = lengthTable;
+        if (table == null) {
+            // Calculating it twice from different threads is harmless, the result is the same
+            table = new double[2];
+            ArcLengthIntegrator.integrateHalves(speed, uStart, uEnd, table);
+            lengthTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * @param u the "time" param
+     * @return the norm of the derivative at that point, without allocating a vector
+     */
+    private double getSpeedInternal(double u) {
+        double xVal = 0;
+        double yVal = 0;
+        for (int i = rank; i > 0; i--) {
+            xVal = u * xVal + i * x[i];
+            yVal = u * yVal + i * y[i];
+        }
+        return Math.sqrt(xVal * xVal + yVal * yVal);
     }
 
     @Override
     protected double getAngleInternal(double u) {
-        Vector2D d = getDerivativeInter(u);
-        return Math.atan2(d.getY(), d.getX());
+        double xVal = 0;
+        double yVal = 0;
+        for (int i = rank; i > 0; i--) {
+            xVal = u * xVal + i * x[i];
+            yVal = u * yVal + i * y[i];
+        }
+        return Math.atan2(yVal, xVal);
     }
 
     /**
@@ -137,22 +338,59 @@ public class PolynomialCurve extends AbstractCurve {
      */
     @Override
     protected double getCurvatureInternal(double u) {
-        Vector2D derv = getDerivativeInter(u);
-        Vector2D doubleDerv = getDoubleDerivativeInter(u);
-        double normCubed = Math.pow(derv.norm(), 3);
+        // The first and second derivatives in a single pass, see evaluateInter
+        double dx = 0, ddx = 0;
+        double dy = 0, ddy = 0;
+        for (int i = rank; i > 0; i--) {
+            ddx = u * ddx + dx;
+            dx = u * dx + i * x[i];
+            ddy = u * ddy + dy;
+            dy = u * dy + i * y[i];
+        }
+        return getCurvature(dx, dy, ddx, ddy);
+    }
+
+    /**
+     * @return The curvature of a curve with the given first and second derivatives
+     */
+    public static double getCurvature(double dx, double dy, double ddx, double ddy) {
+        double normSquared = dx * dx + dy * dy;
+        double normCubed = normSquared * Math.sqrt(normSquared);
         if (normCubed < 1E-3) {
             return 0;
         }
 
-        return (derv.getX() * doubleDerv.getY() - derv.getY() * doubleDerv.getX()) /
-                normCubed;
+        return (dx * ddy - dy * ddx) / normCubed;
+    }
+
+    /**
+     * The exact derivative, the speed in polynomial time scaled by the length of the range.
+     */
+    @Override
+    public double getSpeed(double u) {
+        return getSpeedInternal(clamp(u)) * (uEnd - uStart);
+    }
+
+    /**
+     * The same as the length of getSubCurve(uStart, uEnd), without creating it.
+     */
+    @Override
+    public double getLength(double uStart, double uEnd) {
+        return ArcLengthIntegrator.integrateHalves(speed, getSubCurveStart(uStart), getSubCurveStart(uEnd), null);
     }
 
     @Override
     public ICurve getSubCurve(double uStart, double uEnd) {
-        return new PolynomialCurve(rank, x, y,
-                clamp(uStart) / tScaling, clamp(uEnd) / tScaling,
-                tScaling);
+        return new PolynomialCurve(this, getSubCurveStart(uStart), getSubCurveStart(uEnd));
+    }
+
+    /**
+     * @return Where a sub-curve starting at u starts, in the same units as this.uStart
+     */
+    private double getSubCurveStart(double u) {
+        // Divided and multiplied by tScaling the same way the public constructor does, so sub-curves of
+        // sub-curves stay the same as sub-curves of the original
+        return clamp(u) / tScaling * tScaling;
     }
 
     public int getRank() {
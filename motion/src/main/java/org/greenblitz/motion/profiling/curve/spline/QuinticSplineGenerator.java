@@ -1,8 +1,11 @@
 package org.greenblitz.motion.profiling.curve.spline;
 
+import org.greenblitz.motion.base.Point;
 import org.greenblitz.motion.base.State;
 import org.greenblitz.motion.base.Vector2D;
 
+import java.util.List;
+
 /**
  * @author peleg
  */
@@ -52,23 +55,8 @@ public class QuinticSplineGenerator {
         double angS = start.getAngle();
         double angE = end.getAngle();
 
-        double sinAngS = Math.sin(angS);
-        double cosAngS = Math.cos(angS);
-        Vector2D startDoubleDerv = new Vector2D(0, 0);
-
-        if (start.getLinearVelocity() != 0) {
-            startDoubleDerv = getDoubleDerv(new Vector2D(sinAngS, cosAngS),
-                    start.getAngularVelocity() / start.getLinearVelocity());
-        }
-
-        double sinAngE = Math.sin(angE);
-        double cosAngE = Math.cos(angE);
-        Vector2D endDoubleDerv = new Vector2D(0, 0);
-
-        if (end.getLinearVelocity() != 0) {
-            endDoubleDerv = getDoubleDerv(new Vector2D(sinAngE, cosAngE),
-                    end.getAngularVelocity() / end.getLinearVelocity());
-        }
+        Vector2D startDoubleDerv = getDoubleDerv(start);
+        Vector2D endDoubleDerv = getDoubleDerv(end);
 
         return new PolynomialCurve(5,
                 getParams(start.getX(), end.getX(), Math.sin(angS), Math.sin(angE), startDoubleDerv.getX(), endDoubleDerv.getX(), t),
@@ -76,6 +64,100 @@ public class QuinticSplineGenerator {
         );
     }
 
+    /**
+     * Generates one quintic polynomial for every pair of consecutive waypoints, like generateSpline does, but
+     * solves for the second derivatives at the middle waypoints instead of taking them from the states.
+     * They are chosen so the third derivative is continuous too, so the curvature is smooth across the waypoints
+     * instead of only continuous. The angular and linear velocities of the middle waypoints are ignored,
+     * the ones of the first and last waypoints are used like in generateSpline.
+     * <p>
+     * The continuity conditions form a tridiagonal, diagonally dominant system with one row per middle waypoint,
+     * which is solved for x and y together in O(n) with no pivoting.
+     *
+     * @param locations the waypoints, at least two
+     * @param tForCurve the "time" of each polynomial is tForCurve times the distance between it's waypoints
+     * @return the polynomial between locations[i] and locations[i + 1] at index i
+     */
+    public static PolynomialCurve[] generateSplines(List<State> locations, double tForCurve) {
+        int n = locations.size();
+        if (n < 2)
+            throw new IllegalArgumentException("At least two waypoints are needed, got " + n);
+
+        double[] px = new double[n], py = new double[n];
+        double[] vx = new double[n], vy = new double[n];
+        double[] ax = new double[n], ay = new double[n];
+        double[] times = new double[n - 1];
+        for (int i = 0; i < n; i++) {
+            State location = locations.get(i);
+            px[i] = location.getX();
+            py[i] = location.getY();
+            vx[i] = Math.sin(location.getAngle());
+            vy[i] = Math.cos(location.getAngle());
+            if (i > 0) {
+                times[i - 1] = tForCurve * Point.dist(locations.get(i - 1), location);
+                if (!(times[i - 1] > 0))
+                    throw new IllegalArgumentException("Waypoints " + (i - 1) + " and " + i + " are at the same place");
+            }
+        }
+        Vector2D startDoubleDerv = getDoubleDerv(locations.get(0));
+        Vector2D endDoubleDerv = getDoubleDerv(locations.get(n - 1));
+        ax[0] = startDoubleDerv.getX();
+        ay[0] = startDoubleDerv.getY();
+        ax[n - 1] = endDoubleDerv.getX();
+        ay[n - 1] = endDoubleDerv.getY();
+
+        // Continuity of the third derivative at waypoint k, with L = times[k - 1] and R = times[k]:
+        // -3a[k-1]/L + 9a[k](1/L + 1/R) - 3a[k+1]/R =
+        //     (36v[k] + 24v[k-1])/L^2 - 60(p[k] - p[k-1])/L^3 - (36v[k] + 24v[k+1])/R^2 + 60(p[k+1] - p[k])/R^3
+        // Forward elimination (Thomas algorithm), ax and ay hold the eliminated right hand sides
+        double[] upper = new double[n];
+        for (int k = 1; k < n - 1; k++) {
+            double left = 1 / times[k - 1], right = 1 / times[k];
+            double lower = -3 * left;
+            double diagonal = 9 * (left + right) - lower * upper[k - 1];
+            double rx = getContinuityRhs(px, vx, k, left, right) - lower * ax[k - 1];
+            double ry = getContinuityRhs(py, vy, k, left, right) - lower * ay[k - 1];
+            if (k == n - 2) {
+                // The last second derivative is known
+                rx += 3 * right * ax[n - 1];
+                ry += 3 * right * ay[n - 1];
+            } else {
+                upper[k] = -3 * right / diagonal;
+            }
+            ax[k] = rx / diagonal;
+            ay[k] = ry / diagonal;
+        }
+        for (int k = n - 3; k >= 1; k--) {
+            ax[k] -= upper[k] * ax[k + 1];
+            ay[k] -= upper[k] * ay[k + 1];
+        }
+
+        PolynomialCurve[] ret = new PolynomialCurve[n - 1];
+        for (int i = 0; i < n - 1; i++) {
+            ret[i] = new PolynomialCurve(5,
+                    getParams(px[i], px[i + 1], vx[i], vx[i + 1], ax[i], ax[i + 1], times[i]),
+                    getParams(py[i], py[i + 1], vy[i], vy[i + 1], ay[i], ay[i + 1], times[i]), 0, 1, times[i]
+            );
+        }
+        return ret;
+    }
+
+    private static double getContinuityRhs(double[] p, double[] v, int k, double left, double right) {
+        double left2 = left * left, right2 = right * right;
+        return (36 * v[k] + 24 * v[k - 1]) * left2 - 60 * (p[k] - p[k - 1]) * left2 * left
+                - (36 * v[k] + 24 * v[k + 1]) * right2 + 60 * (p[k + 1] - p[k]) * right2 * right;
+    }
+
+    /**
+     * @return The second derivative at the state, see generateSpline
+     */
+    private static Vector2D getDoubleDerv(State state) {
+        if (state.getLinearVelocity() == 0)
+            return new Vector2D(0, 0);
+        return getDoubleDerv(new Vector2D(Math.sin(state.getAngle()), Math.cos(state.getAngle())),
+                state.getAngularVelocity() / state.getLinearVelocity());
+    }
+
     private static Vector2D getDoubleDerv(Vector2D firstDerv, double curvature) {
 
         if (firstDerv.getX() == 0 && firstDerv.getY() == 0) {
@@ -32,7 +32,8 @@ public class FeedForwards1DFollower {
     public double run() {
         double timeNow = (System.currentTimeMillis() - startTime) / 1000.0;
         if (profile.isOver(timeNow)) return 0;
-        return profile.getVelocity(timeNow) * kV + profile.getAcceleration(timeNow) * kA;
+        int segment = profile.quickGetSegmentIndex(timeNow);
+        return profile.getVelocityAt(segment, timeNow) * kV + profile.getAccelerationAt(segment, timeNow) * kA;
     }
 
     public boolean isFinished() {
@@ -6,6 +6,7 @@ import org.greenblitz.motion.pid.CollapsingPIDController;
 import org.greenblitz.motion.pid.PIDController;
 import org.greenblitz.motion.pid.PIDObject;
 import org.greenblitz.motion.profiling.MotionProfile2D;
+import org.greenblitz.motion.profiling.ProfileSample;
 import org.greenblitz.motion.profiling.kinematics.IConverter;
 import org.greenblitz.motion.profiling.kinematics.ReverseLocalizerConverter;
 
@@ -33,6 +34,10 @@ public class PidFollower2D {
     protected RemoteCSVTarget rightOutputTarget;
     protected boolean sendData = false;
 
+    private final ProfileSample sample = new ProfileSample();
+    private final Vector2D velocity = new Vector2D(0, 0);
+    private final Vector2D acceleration = new Vector2D(0, 0);
+
     /**
      * Use with EXTREME CAUTION. this is used for dynamic motion profiling and is
      * generally not that safe.
@@ -148,8 +153,9 @@ public class PidFollower2D {
     public Vector2D forceRun(double leftCurr, double rightCurr, double angularVel, double timeNow) {
         if (profile.isOver(timeNow)) return new Vector2D(0, 0);
 
-        Vector2D velocity = profile.getVelocity(timeNow);
-        Vector2D acceleration = profile.getAcceleration(timeNow);
+        profile.sample(timeNow, sample);
+        velocity.set(sample.getFirstVelocity(), sample.getSecondVelocity());
+        acceleration.set(sample.getFirstAcceleration(), sample.getSecondAcceleration());
 
         angularVelocityController.setGoal(velocity.getY());
         double angularPIDOut = angularVelocityController.calculatePID(angularVel);
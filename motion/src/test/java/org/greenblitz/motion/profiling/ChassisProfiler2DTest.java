@@ -4,12 +4,25 @@ import org.greenblitz.motion.base.State;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ChassisProfiler2DTest {
 
+    /**
+     * The same as generateProfile(lst, jump, 3, 4, 2, 2), generated as the options say.
+     */
+    private static MotionProfile2D generateProfile(List<State> lst, double jump, ProfilingOptions options) {
+        return ChassisProfiler2D.generateProfile(lst, jump, 0, 0, new ProfilingData(3, 2, 4, 2), 0, 1.0,
+                ChassisProfiler2D.SMOOTHING_TAIL_SIZE, 0, Collections.emptyList(), options);
+    }
+
     @Test
     void VSegmentGetVelocityTest() {
 
@@ -47,4 +60,153 @@ public class ChassisProfiler2DTest {
         ChassisProfiler2D.generateProfile(lst, 0.01, 5, 4, 3, 2);
     }
 
+    @Test
+    void sampleTest() {
+        List<State> lst = new ArrayList<>();
+        lst.add(new State(0, 0, 0, 0, 0));
+        lst.add(new State(1, 2, 0.5, 1, 0));
+        lst.add(new State(3, 5, 0, 0, 0));
+        MotionProfile2D profile = ChassisProfiler2D.generateProfile(lst, 0.01, 3, 4, 2, 2);
+        ProfileSample sample = new ProfileSample();
+        for (double t = 0; t < profile.getTEnd(); t += 0.02) {
+            profile.sample(t, sample);
+            assertEquals(profile.getLocation(t).getX(), sample.getFirstLocation(), 1E-9);
+            assertEquals(profile.getLocation(t).getY(), sample.getSecondLocation(), 1E-9);
+            assertEquals(profile.getVelocity(t).getX(), sample.getFirstVelocity(), 1E-9);
+            assertEquals(profile.getVelocity(t).getY(), sample.getSecondVelocity(), 1E-9);
+            assertEquals(profile.getAcceleration(t).getX(), sample.getFirstAcceleration(), 1E-9);
+            assertEquals(profile.getAcceleration(t).getY(), sample.getSecondAcceleration(), 1E-9);
+        }
+    }
+
+    @Test
+    void parallelDivisionTest() {
+        List<State> lst = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            lst.add(new State(i, i % 2 == 0 ? 0 : 1.5, (i % 3) * 0.3, 1, 0));
+        MotionProfile2D serial = ChassisProfiler2D.generateProfile(lst, 0.005, 3, 4, 2, 2);
+        MotionProfile2D parallel = generateProfile(lst, 0.005, ProfilingOptions.DEFAULT.setParallelDivision(true));
+        assertEquals(serial.getTEnd(), parallel.getTEnd(), 0);
+        for (double t = 0; t < serial.getTEnd(); t += 0.01) {
+            assertEquals(serial.getLocation(t), parallel.getLocation(t));
+            assertEquals(serial.getVelocity(t).getX(), parallel.getVelocity(t).getX(), 0);
+            assertEquals(serial.getVelocity(t).getY(), parallel.getVelocity(t).getY(), 0);
+        }
+    }
+
+    @Test
+    void streamingTest() {
+        List<State> lst = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            lst.add(new State(i, i % 2 == 0 ? 0 : 1.5, (i % 3) * 0.3, 1, 0));
+        ProfilingData data = new ProfilingData(3, 2, 4, 2);
+        for (double velocityEnd : new double[]{0, 1, Double.POSITIVE_INFINITY}) {
+            MotionProfile2D full = ChassisProfiler2D.generateProfile(lst, 0.005, 0.5, velocityEnd, data, 0, 1.0, 20);
+            StreamingMotionProfile2D streaming = ChassisProfiler2D.generateStreamingProfile(lst, 0.005, 0.5, velocityEnd,
+                    data, 0, 1.0, 20, 0.1);
+            for (double t = 0; t < full.getTEnd(); t += 0.01) {
+                assertEquals(full.getLocation(t), streaming.getLocation(t));
+                assertEquals(full.getVelocity(t), streaming.getVelocity(t));
+                assertEquals(full.getAcceleration(t), streaming.getAcceleration(t));
+            }
+            assertEquals(full.getTEnd(), streaming.getTEnd(), 0);
+            assertTrue(streaming.isGenerationFinished());
+        }
+    }
+
+    @Test
+    void adaptiveDivisionTest() {
+        List<State> lst = new ArrayList<>();
+        lst.add(new State(0, 0, 0, 0, 0));
+        lst.add(new State(0, 4, 0, 0, 0));
+        lst.add(new State(1.5, 6, 1.2, 0, 0));
+        lst.add(new State(3, 9, 0, 0, 0));
+        MotionProfile2D fixed = ChassisProfiler2D.generateProfile(lst, 0.001, 0, 0, 3.5, 4, 2.5, 5, 0, 0.8, 200);
+        MotionProfile2D adaptive = ChassisProfiler2D.generateProfile(lst, 0.001, 0, 0, 3.5, 4, 2.5, 5, 0, 0.8, 200, 0.05);
+        assertEquals(fixed.getTEnd(), adaptive.getTEnd(), fixed.getTEnd() * 0.01);
+        assertEquals(fixed.getLocation(fixed.getTEnd()).getX(), adaptive.getLocation(adaptive.getTEnd()).getX(), 0.05);
+        assertEquals(fixed.getLocation(fixed.getTEnd()).getY(), adaptive.getLocation(adaptive.getTEnd()).getY(), 0.05);
+
+        MotionProfile2D zeroTolerance = ChassisProfiler2D.generateProfile(lst, 0.001, 0, 0, 3.5, 4, 2.5, 5, 0, 0.8, 200, 0);
+        assertEquals(fixed.getTEnd(), zeroTolerance.getTEnd(), 0);
+    }
+
+    @Test
+    void globalSplineTest() {
+        List<State> lst = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            lst.add(new State(i, i % 2 == 0 ? 0 : 1.5, (i % 3) * 0.3, 1, 0));
+        MotionProfile2D pairwise = ChassisProfiler2D.generateProfile(lst, 0.005, 3, 4, 2, 2);
+        ProfilingOptions options = ProfilingOptions.DEFAULT.setSplineType(ChassisProfiler2D.SplineType.GLOBAL);
+        MotionProfile2D global = generateProfile(lst, 0.005, options);
+        MotionProfile2D parallel = generateProfile(lst, 0.005, options.setParallelDivision(true));
+        assertEquals(global.getFirstProfile().getSegments(), parallel.getFirstProfile().getSegments());
+        assertEquals(pairwise.getTEnd(), global.getTEnd(), pairwise.getTEnd() * 0.2);
+        assertTrue(pairwise.getTEnd() != global.getTEnd());
+    }
+
+    @Test
+    void bezierTest() {
+        List<State> lst = new ArrayList<>();
+        lst.add(new State(0, 0, 0, 0, 0));
+        lst.add(new State(1, 2, 0.5, 1, 0));
+        lst.add(new State(3, 5, 0, 0, 0));
+        MotionProfile2D profile = ChassisProfiler2D.generateProfile(lst, 0.01, 0, 0, new ProfilingData(3, 2, 4, 2),
+                0, 1.0, 50, 0.05, Collections.emptyList(),
+                ProfilingOptions.DEFAULT.setSplineType(ChassisProfiler2D.SplineType.BEZIER));
+        assertEquals(0, profile.getVelocity(profile.getTEnd()).getX(), 1E-6);
+        assertTrue(profile.getTEnd() > 0);
+    }
+
+    @Test
+    void compactTest() {
+        List<State> lst = new ArrayList<>();
+        lst.add(new State(0, 0, 0, 0, 0));
+        lst.add(new State(1, 2, 0.5, 1, 0));
+        lst.add(new State(3, 5, 0, 0, 0));
+        MotionProfile2D original = ChassisProfiler2D.generateProfile(lst, 0.001, 3, 4, 2, 2);
+        MotionProfile2D compacted = original.copy();
+        int before = original.getFirstProfile().getSegmentCount();
+
+        double[] error = compacted.compact(1E-2, 1E-2);
+        int after = compacted.getFirstProfile().getSegmentCount();
+        assertTrue(after * 5 < before);
+        assertEquals(after, compacted.getSecondProfile().getSegmentCount());
+        assertEquals(original.getTEnd(), compacted.getTEnd(), 1E-9);
+        for (double t = 0; t < original.getTEnd(); t += 0.005) {
+            assertEquals(original.getVelocity(t).getX(), compacted.getVelocity(t).getX(), error[0] + 1E-9);
+            assertEquals(original.getVelocity(t).getY(), compacted.getVelocity(t).getY(), error[0] + 1E-9);
+            assertEquals(original.getLocation(t).getX(), compacted.getLocation(t).getX(), error[1] + 1E-9);
+            assertEquals(original.getLocation(t).getY(), compacted.getLocation(t).getY(), error[1] + 1E-9);
+        }
+    }
+
+    @Test
+    void concurrentGenerationTest() throws Exception {
+        List<List<State>> paths = new ArrayList<>();
+        for (int p = 0; p < 8; p++) {
+            List<State> lst = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                lst.add(new State(i * (1 + p * 0.1), (i % 2) * 1.5, (i % 3) * 0.3, 1, 0));
+            paths.add(lst);
+        }
+        List<MotionProfile2D> expected = new ArrayList<>();
+        for (List<State> lst : paths)
+            expected.add(ChassisProfiler2D.generateProfile(lst, 0.001, 0, 0, 3, 4, 2, 5, 0, 1.0, 50));
+
+        ExecutorService executor = Executors.newFixedThreadPool(paths.size());
+        try {
+            List<Future<MotionProfile2D>> futures = new ArrayList<>();
+            for (List<State> lst : paths)
+                futures.add(executor.submit(() -> ChassisProfiler2D.generateProfile(lst, 0.001, 0, 0, 3, 4, 2, 5, 0, 1.0, 50)));
+            for (int p = 0; p < paths.size(); p++) {
+                MotionProfile2D actual = futures.get(p).get();
+                assertEquals(expected.get(p).getFirstProfile().getSegments(), actual.getFirstProfile().getSegments());
+                assertEquals(expected.get(p).getSecondProfile().getSegments(), actual.getSecondProfile().getSegments());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
 }
@@ -0,0 +1,75 @@
+package org.greenblitz.motion.profiling;
+
+import org.greenblitz.motion.base.State;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GeometryCacheTest {
+
+    private static List<State> path() {
+        List<State> lst = new ArrayList<>();
+        lst.add(new State(0, 0, 0, 0, 0));
+        lst.add(new State(1, 2, 0.5, 1, 0));
+        lst.add(new State(3, 5, 0, 0, 0));
+        return lst;
+    }
+
+    private static void assertSameProfile(MotionProfile2D expected, MotionProfile2D actual) {
+        assertEquals(expected.getFirstProfile().getSegments(), actual.getFirstProfile().getSegments());
+        assertEquals(expected.getSecondProfile().getSegments(), actual.getSecondProfile().getSegments());
+    }
+
+    /**
+     * The same as generateProfile(lst, 0.01, maxV, 4, 2, 2), generated as the options say.
+     */
+    private static MotionProfile2D generateProfile(List<State> lst, double maxV, ProfilingOptions options) {
+        return ChassisProfiler2D.generateProfile(lst, 0.01, 0, 0, new ProfilingData(maxV, 2, 4, 2), 0, 1.0,
+                ChassisProfiler2D.SMOOTHING_TAIL_SIZE, 0, Collections.emptyList(), options);
+    }
+
+    @Test
+    void sweepTest() {
+        GeometryCache cache = new GeometryCache(16);
+        ProfilingOptions options = ProfilingOptions.DEFAULT.setGeometryCache(cache);
+        for (double maxV : new double[]{2, 3, 4}) {
+            MotionProfile2D cached = generateProfile(path(), maxV, options);
+            // Every waypoint pair is divided once for the whole sweep
+            assertEquals(2, cache.size());
+            assertSameProfile(ChassisProfiler2D.generateProfile(path(), 0.01, maxV, 4, 2, 2), cached);
+        }
+
+        // The same first pair, in a different path
+        List<State> longer = path();
+        longer.add(new State(4, 7, 0, 0, 0));
+        MotionProfile2D cached = generateProfile(longer, 3, options);
+        assertEquals(3, cache.size());
+        assertSameProfile(cached, generateProfile(longer, 3, options.setParallelDivision(true)));
+        assertSameProfile(ChassisProfiler2D.generateProfile(longer, 0.01, 3, 4, 2, 2), cached);
+
+        // The splines of the whole path change when a waypoint is added, so nothing is shared
+        ProfilingOptions global = options.setSplineType(ChassisProfiler2D.SplineType.GLOBAL);
+        generateProfile(path(), 3, global);
+        generateProfile(longer, 3, global);
+        assertEquals(8, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void capacityTest() {
+        GeometryCache cache = new GeometryCache(1);
+        ProfilingOptions options = ProfilingOptions.DEFAULT.setGeometryCache(cache);
+        MotionProfile2D cached = generateProfile(path(), 3, options);
+        assertEquals(1, cache.size());
+        assertSameProfile(cached, generateProfile(path(), 3, options));
+        assertThrows(IllegalArgumentException.class, () -> new GeometryCache(-1));
+    }
+
+}
@@ -0,0 +1,128 @@
+package org.greenblitz.motion.profiling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MotionProfile1DTest {
+
+    private static final double EPSILON = 1E-9;
+
+    private MotionProfile1D createProfile() {
+        return new MotionProfile1D(
+                new MotionProfile1D.Segment(0, 1, 1, 0, 0),
+                new MotionProfile1D.Segment(1, 3, 0, 1, 0.5),
+                new MotionProfile1D.Segment(3, 4, -1, 1, 2.5)
+        );
+    }
+
+    @Test
+    void lookupTest() {
+        MotionProfile1D p = createProfile();
+        assertEquals(3, p.getSegmentCount());
+        assertEquals(4, p.getTEnd(), EPSILON);
+
+        assertEquals(0.5, p.getVelocity(0.5), EPSILON);
+        assertEquals(1.5, p.getLocation(2), EPSILON);
+        assertEquals(-1, p.getAcceleration(3.5), EPSILON);
+        assertEquals(3, p.getLocation(4), EPSILON);
+
+        // Going back in time must still work
+        assertEquals(0.125, p.getLocation(0.5), EPSILON);
+
+        assertEquals(p.quickGetSegment(2.5), p.getSegmentRandom(2.5));
+        assertEquals(2, p.getSegmentIndexRandom(3.9));
+        assertThrows(IndexOutOfBoundsException.class, () -> p.getSegmentRandom(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> p.quickGetSegment(-1));
+    }
+
+    @Test
+    void copySemanticsTest() {
+        MotionProfile1D p = createProfile();
+        List<MotionProfile1D.Segment> segs = p.getSegments();
+        segs.get(0).setAccel(100);
+        p.quickGetSegment(0.5).setAccel(100);
+        assertEquals(1, p.getAcceleration(0.5), EPSILON);
+    }
+
+    @Test
+    void safeAddTest() {
+        MotionProfile1D p = new MotionProfile1D(new MotionProfile1D.Segment(0, 1, 1, 0, 0));
+        MotionProfile1D second = new MotionProfile1D(new MotionProfile1D.Segment(0, 1, -1, 1, 0.5));
+        p.safeAdd(second);
+        assertEquals(2, p.getSegmentCount());
+        assertEquals(2, p.getTEnd(), EPSILON);
+        assertEquals(1, p.getLocation(2), EPSILON);
+        assertEquals(0, p.getVelocity(2), EPSILON);
+    }
+
+    @Test
+    void removeBugSegmentsTest() {
+        MotionProfile1D p = new MotionProfile1D(
+                new MotionProfile1D.Segment(0, 1, 1, 0, 0),
+                new MotionProfile1D.Segment(1, 1, 5, 1, 0.5),
+                new MotionProfile1D.Segment(1, 2, 0, 1, 0.5)
+        );
+        p.removeBugSegments();
+        assertEquals(2, p.getSegmentCount());
+        assertEquals(0, p.getAcceleration(1.5), EPSILON);
+    }
+
+    @Test
+    void timeIndexTest() {
+        MotionProfile1D p = new MotionProfile1D();
+        double t = 0;
+        for (int i = 0; i < 1000; i++) {
+            double dt = 0.001 + (i % 7) * 0.002;
+            p.unsafeAddSegment(new MotionProfile1D.Segment(t, t + dt, i % 3 - 1, 0, 0));
+            t += dt;
+        }
+        p.buildTimeIndex(100);
+        assertTrue(p.hasTimeIndex());
+        for (double time = p.getTEnd(); time >= 0; time -= 0.0007) {
+            assertTrue(p.getSegment(p.getSegmentIndexBucketed(time)).isTimePartOfSegment(time));
+            assertTrue(p.getSegment(p.quickGetSegmentIndex(time)).isTimePartOfSegment(time));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> p.getSegmentIndexBucketed(p.getTEnd() + 1));
+
+        p.unsafeAddSegment(new MotionProfile1D.Segment(t, t + 1, 0, 0, 0));
+        assertFalse(p.hasTimeIndex());
+    }
+
+    @Test
+    void compactTest() {
+        // Accelerates at 1 then cruises, split to many segments with a small wobble in the acceleration
+        MotionProfile1D p = new MotionProfile1D();
+        double t = 0, v = 0, x = 0;
+        for (int i = 0; i < 200; i++) {
+            double a = i < 100 ? 1 + (i % 2 == 0 ? 1E-3 : -1E-3) : 0;
+            p.unsafeAddSegment(new MotionProfile1D.Segment(t, t + 0.01, a, v, x));
+            x += v * 0.01 + 0.5 * a * 0.0001;
+            v += a * 0.01;
+            t += 0.01;
+        }
+        MotionProfile1D original = p.copy();
+        p.buildTimeIndex();
+
+        double[] error = p.compact(1E-4, 1E-4);
+        assertEquals(2, p.getSegmentCount());
+        assertTrue(p.hasTimeIndex());
+        assertTrue(error[0] <= 1E-4 && error[1] <= 1E-4);
+        assertEquals(original.getTEnd(), p.getTEnd(), EPSILON);
+        for (double time = 0; time < p.getTEnd(); time += 0.001) {
+            assertEquals(original.getVelocity(time), p.getVelocity(time), error[0] + EPSILON);
+            assertEquals(original.getLocation(time), p.getLocation(time), error[1] + EPSILON);
+        }
+
+        MotionProfile1D exact = original.copy();
+        assertTrue(exact.compact(1E-9, 1E-9)[1] <= 1E-9);
+        assertEquals(101, exact.getSegmentCount());
+        assertThrows(IllegalArgumentException.class, () -> exact.compact(-1, 0));
+    }
+
+}
@@ -0,0 +1,70 @@
+package org.greenblitz.motion.profiling;
+
+import org.greenblitz.motion.base.Point;
+import org.greenblitz.motion.base.State;
+import org.greenblitz.motion.profiling.curve.BezierCurve;
+import org.greenblitz.motion.profiling.curve.ICurve;
+import org.greenblitz.motion.profiling.curve.spline.QuinticSplineGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PathGeometryTest {
+
+    private static final double EPSILON = 1E-9;
+
+    @Test
+    void boundariesTest() {
+        ICurve[] curves = {
+                QuinticSplineGenerator.generateSpline(new State(0, 0, 0.2, 1, 0.5), new State(2, 3, -0.6, 1, 0), 2.5),
+                new BezierCurve(new Point(0, 0), new Point(1, 3), new Point(2.5, -1), new Point(4, 2))
+        };
+        double[] boundaries = {0, 0.1, 0.25, 0.3, 0.7, 1, 5};
+        for (ICurve curve : curves) {
+            PathGeometry geometry = new PathGeometry(1);
+            geometry.add(curve, boundaries, 6);
+            assertEquals(5, geometry.size());
+            for (int i = 0; i < 5; i++) {
+                ICurve piece = curve.getSubCurve(boundaries[i], boundaries[i + 1]);
+                assertEquals(piece.getLength(1), geometry.getLength(i), EPSILON);
+                assertEquals(piece.getCurvature(0), geometry.getCurvatureStart(i), EPSILON);
+                assertEquals(piece.getCurvature(), geometry.getCurvature(i), EPSILON);
+                assertEquals(piece.getCurvature(1), geometry.getCurvatureEnd(i), EPSILON);
+                assertEquals(piece.getLocation(0.5).getX(), geometry.getX(i), EPSILON);
+                assertEquals(piece.getLocation(0.5).getY(), geometry.getY(i), EPSILON);
+            }
+            // Neighbours share the curvature at their common boundary
+            for (int i = 0; i < 4; i++)
+                assertEquals(geometry.getCurvatureEnd(i), geometry.getCurvatureStart(i + 1), 0);
+        }
+    }
+
+    @Test
+    void knownCurvaturesTest() {
+        ICurve curve = QuinticSplineGenerator.generateSpline(new State(0, 0, 0.2, 1, 0.5), new State(2, 3, -0.6, 1, 0), 2.5);
+        double[] boundaries = {0, 0.25, 0.5, 1};
+        PathGeometry expected = new PathGeometry(1);
+        expected.add(curve, boundaries, 4);
+
+        // Only the first sub-curve's curvatures are given, the rest are calculated
+        double nan = Double.NaN;
+        double[] curvatures = {5, 6, nan, nan};
+        double[] middleCurvatures = {7, nan, nan, nan};
+        PathGeometry geometry = new PathGeometry(1);
+        geometry.add(curve, boundaries, curvatures, middleCurvatures, 4);
+        assertEquals(3, geometry.size());
+        assertEquals(5, geometry.getCurvatureStart(0), 0);
+        assertEquals(6, geometry.getCurvatureEnd(0), 0);
+        assertEquals(6, geometry.getCurvatureStart(1), 0);
+        assertEquals(6, geometry.getCurvature(0), 0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected.getLength(i), geometry.getLength(i), 0);
+            assertEquals(expected.getX(i), geometry.getX(i), 0);
+            assertEquals(expected.getY(i), geometry.getY(i), 0);
+        }
+        for (int i = 1; i < 3; i++)
+            assertEquals(expected.getCurvatureEnd(i), geometry.getCurvatureEnd(i), EPSILON);
+        assertEquals(expected.getCurvature(2), geometry.getCurvature(2), EPSILON);
+    }
+
+}
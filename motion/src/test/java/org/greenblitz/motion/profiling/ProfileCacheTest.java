@@ -0,0 +1,110 @@
+package org.greenblitz.motion.profiling;
+
+import org.greenblitz.motion.base.State;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ProfileCacheTest {
+
+    private File directory;
+
+    private static List<State> path() {
+        List<State> lst = new ArrayList<>();
+        lst.add(new State(0, 0, 0, 0, 0));
+        lst.add(new State(1, 2, 0.5, 1, 0));
+        lst.add(new State(3, 5, 0, 0, 0));
+        return lst;
+    }
+
+    /**
+     * The same as generateProfile(path(), 0.01, 3, 4, 2, 2), with the given cache.
+     */
+    private static MotionProfile2D generateProfile(ProfileCache cache) {
+        return ChassisProfiler2D.generateProfile(path(), 0.01, 0, 0, new ProfilingData(3, 2, 4, 2), 0, 1.0,
+                ChassisProfiler2D.SMOOTHING_TAIL_SIZE, 0, Collections.emptyList(),
+                ProfilingOptions.DEFAULT.setProfileCache(cache));
+    }
+
+    private static void assertSameProfile(MotionProfile2D expected, MotionProfile2D actual) {
+        assertEquals(expected.getFirstProfile().getSegments(), actual.getFirstProfile().getSegments());
+        assertEquals(expected.getSecondProfile().getSegments(), actual.getSecondProfile().getSegments());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        if (directory != null) {
+            File[] files = directory.listFiles();
+            if (files != null)
+                for (File f : files)
+                    f.delete();
+            directory.delete();
+        }
+    }
+
+    @Test
+    void keyTest() {
+        String key = ProfileCache.keyBuilder("test").putStates(path()).putDouble(0.01).build();
+        assertEquals(key, ProfileCache.keyBuilder("test").putStates(path()).putDouble(0.01).build());
+        assertNotEquals(key, ProfileCache.keyBuilder("test").putStates(path()).putDouble(0.02).build());
+        assertNotEquals(key, ProfileCache.keyBuilder("other").putStates(path()).putDouble(0.01).build());
+        assertEquals(64, key.length());
+    }
+
+    @Test
+    void memoryTest() {
+        MotionProfile2D uncached = ChassisProfiler2D.generateProfile(path(), 0.01, 3, 4, 2, 2);
+        ProfileCache cache = new ProfileCache(4);
+        MotionProfile2D first = generateProfile(cache);
+        MotionProfile2D second = generateProfile(cache);
+        assertNotSame(first, second);
+        assertSameProfile(uncached, first);
+        assertSameProfile(uncached, second);
+
+        first.removeBugSegments();
+        first.getFirstProfile().addSegment(100, 101, 0, 0, 0);
+        assertSameProfile(uncached, generateProfile(cache));
+    }
+
+    @Test
+    void lruTest() {
+        ProfileCache cache = new ProfileCache(1);
+        MotionProfile2D profile = ChassisProfiler2D.generateProfile(path(), 0.01, 3, 4, 2, 2);
+        cache.put("a", profile);
+        assertNotNull(cache.get("a"));
+        cache.put("b", profile);
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+    }
+
+    @Test
+    void diskTest() throws IOException {
+        directory = Files.createTempDirectory("profile-cache").toFile();
+        MotionProfile2D uncached = ChassisProfiler2D.generateProfile(path(), 0.01, 3, 4, 2, 2);
+        generateProfile(new ProfileCache(4, directory));
+        File[] files = directory.listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+
+        ProfileCache fresh = new ProfileCache(4, directory);
+        String key = files[0].getName().replace(".profile", "");
+        assertSameProfile(uncached, fresh.get(key));
+        assertSameProfile(uncached, generateProfile(fresh));
+
+        Files.write(files[0].toPath(), new byte[]{1, 2, 3});
+        assertNull(new ProfileCache(4, directory).get(key));
+    }
+
+}
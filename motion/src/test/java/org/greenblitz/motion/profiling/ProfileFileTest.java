@@ -0,0 +1,99 @@
+package org.greenblitz.motion.profiling;
+
+import org.greenblitz.motion.base.State;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProfileFileTest {
+
+    private File file;
+
+    @BeforeEach
+    void createFile() throws IOException {
+        file = File.createTempFile("profile", ".bin");
+    }
+
+    @AfterEach
+    void deleteFile() {
+        file.delete();
+    }
+
+    private static MotionProfile1D profile1D() {
+        return new MotionProfile1D(
+                new MotionProfile1D.Segment(0, 1, 1, 0, 0),
+                new MotionProfile1D.Segment(1, 3, 0, 1, 0.5),
+                new MotionProfile1D.Segment(3, 4, -1, 1, 2.5));
+    }
+
+    @Test
+    void roundTrip1DTest() throws IOException {
+        MotionProfile1D profile = profile1D();
+        ProfileFile.write(profile, file);
+        assertEquals(4 * 4 + 8 + 5 * 8 * 3 + 8, file.length());
+
+        MotionProfile1D mapped = ProfileFile.map1D(file);
+        assertTrue(((MappedMotionProfile1D) mapped).isMapped());
+        assertEquals(profile.getSegments(), mapped.getSegments());
+        for (double t = 0; t < 4; t += 0.05) {
+            assertEquals(profile.getLocation(t), mapped.getLocation(t), 0);
+            assertEquals(profile.getVelocity(t), mapped.getVelocity(t), 0);
+        }
+        assertEquals(4, mapped.getTEnd(), 0);
+    }
+
+    @Test
+    void roundTrip2DTest() throws IOException {
+        List<State> lst = new ArrayList<>();
+        lst.add(new State(0, 0, 0, 0, 0));
+        lst.add(new State(1, 2, 0.5, 1, 0));
+        lst.add(new State(3, 5, 0, 0, 0));
+        MotionProfile2D profile = ChassisProfiler2D.generateProfile(lst, 0.01, 3, 4, 2, 2);
+        ProfileFile.write(profile, file);
+
+        MotionProfile2D mapped = ProfileFile.map2D(file);
+        mapped.buildTimeIndex();
+        assertEquals(profile.getFirstProfile().getSegments(), mapped.getFirstProfile().getSegments());
+        assertEquals(profile.getSecondProfile().getSegments(), mapped.getSecondProfile().getSegments());
+        assertThrows(IOException.class, () -> ProfileFile.map1D(file));
+    }
+
+    @Test
+    void writeAfterMapTest() throws IOException {
+        ProfileFile.write(profile1D(), file);
+        MotionProfile1D mapped = ProfileFile.map1D(file);
+        MotionProfile1D view = mapped.copy();
+
+        mapped.safeAdd(new MotionProfile1D(new MotionProfile1D.Segment(0, 1, 1, 0, 3)));
+        assertFalse(((MappedMotionProfile1D) mapped).isMapped());
+        assertEquals(4, mapped.getSegmentCount());
+        assertEquals(5, mapped.getTEnd(), 0);
+
+        assertTrue(((MappedMotionProfile1D) view).isMapped());
+        assertEquals(profile1D().getSegments(), view.getSegments());
+    }
+
+    @Test
+    void corruptedTest() throws IOException {
+        ProfileFile.write(profile1D(), file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[40] ^= 1;
+        Files.write(file.toPath(), bytes);
+        assertThrows(IOException.class, () -> ProfileFile.map1D(file));
+
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> ProfileFile.map1D(file));
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.greenblitz.motion.profiling;
+
+import org.greenblitz.motion.exceptions.ProfilingException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class Profiler1DTest {
+
+    private static final double EPSILON = 1E-9;
+
+    private static List<ActuatorLocation> waypoints() {
+        return Arrays.asList(new ActuatorLocation(0, 0), new ActuatorLocation(3, 1),
+                new ActuatorLocation(-2, 0), new ActuatorLocation(-2.5, 0));
+    }
+
+    @Test
+    void reuseTest() {
+        MotionProfile1D expected = Profiler1D.generateProfile(waypoints(), 2, 3, -2, 1);
+        assertEquals(1, expected.getSegment(0).getTStart(), EPSILON);
+        assertEquals(-2.5, expected.getLocation(expected.getTEnd()), 1E-3);
+
+        // A bigger profile first, so there are leftovers to clear
+        MotionProfile1D buffer = Profiler1D.generateProfile(
+                Arrays.asList(new ActuatorLocation(0, 0), new ActuatorLocation(10, 0)), 1, 1, -1);
+        buffer.buildTimeIndex();
+        buffer.getLocation(5);
+        assertSame(buffer, Profiler1D.generateProfile(waypoints(), 2, 3, -2, 1, buffer));
+        assertEquals(expected.getSegments(), buffer.getSegments());
+        for (double t = 1; t < expected.getTEnd(); t += 0.05)
+            assertEquals(expected.getLocation(t), buffer.getLocation(t), 0);
+
+        double[] locations = {7, 0, 3, -2, -2.5, 7};
+        double[] velocities = {7, 0, 1, 0, 0, 7};
+        assertEquals(expected.getSegments(),
+                Profiler1D.generateProfile(locations, velocities, 1, 5, 2, 3, -2, 1, null).getSegments());
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> Profiler1D.generateProfile(locations, velocities, 1, 7, 2, 3, -2, 1, null));
+    }
+
+    @Test
+    void batchTest() {
+        double[] locations = {0, 3, -2, -2.5, 0, 1, 5, 0};
+        double[] velocities = {0, 1, 0, 0, 0, 0, 0, 0};
+        int[] offsets = {0, 4, 6, 6, 8};
+        MotionProfile1D[] out = new MotionProfile1D[4];
+        out[1] = Profiler1D.generateProfile(waypoints(), 2, 3, -2);
+        MotionProfile1D reused = out[1];
+
+        assertSame(out, Profiler1D.generateProfiles(locations, velocities, offsets, 2, 3, -2, 0, out));
+        assertSame(reused, out[1]);
+        for (int i = 0; i < 4; i++) {
+            List<ActuatorLocation> lst = new ArrayList<>();
+            for (int j = offsets[i]; j < offsets[i + 1]; j++)
+                lst.add(new ActuatorLocation(locations[j], velocities[j]));
+            assertEquals(Profiler1D.generateProfile(lst, 2, 3, -2).getSegments(), out[i].getSegments());
+        }
+        assertEquals(0, out[2].getSegmentCount());
+
+        // Faster than the max velocity
+        velocities[5] = 3;
+        assertThrows(ProfilingException.class,
+                () -> Profiler1D.generateProfiles(locations, velocities, offsets, 2, 3, -2, 0, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> Profiler1D.generateProfiles(locations, velocities, offsets, 2, 3, -2, 0, new MotionProfile1D[2]));
+    }
+
+    @Test
+    void stepTest() {
+        ActuatorLocation current = new ActuatorLocation(0.5, 0.3);
+        ActuatorLocation goal = new ActuatorLocation(-2, 0);
+        MotionProfile1D profile = Profiler1D.generateProfile(Arrays.asList(current, goal), 1, 3, -2);
+        ActuatorLocation state = new ActuatorLocation(0, 0);
+        for (double dt = 0; dt < profile.getTEnd(); dt += 0.01) {
+            assertSame(state, Profiler1D.step(current, goal, 1, 3, -2, dt, state));
+            assertEquals(profile.getLocation(dt), state.getX(), EPSILON);
+            assertEquals(profile.getVelocity(dt), state.getV(), EPSILON);
+        }
+        assertEquals(goal, Profiler1D.step(current, goal, 1, 3, -2, profile.getTEnd() + 1));
+
+        // Stepping the state forward every loop follows the same profile
+        state = new ActuatorLocation(current.getX(), current.getV());
+        for (int i = 1; i <= 50; i++) {
+            Profiler1D.step(state, goal, 1, 3, -2, 0.02, state);
+            assertEquals(profile.getLocation(0.02 * i), state.getX(), 1E-6);
+        }
+        assertThrows(IllegalArgumentException.class, () -> Profiler1D.step(current, goal, 1, 3, -2, -1));
+    }
+
+}
@@ -0,0 +1,73 @@
+package org.greenblitz.motion.profiling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SynchronizedProfiler1DTest {
+
+    private static final double EPSILON = 1E-9;
+
+    @Test
+    void synchronizeTest() {
+        List<ActuatorLocation> elevator = Arrays.asList(new ActuatorLocation(0, 0), new ActuatorLocation(1.5, 0));
+        List<ActuatorLocation> wrist = Arrays.asList(new ActuatorLocation(0, 0), new ActuatorLocation(-1, 0),
+                new ActuatorLocation(0.5, 0));
+        List<ActuatorLocation> turret = Collections.singletonList(new ActuatorLocation(2, 0));
+        double[] maxV = {1, 3, 1}, maxAcc = {2, 8, 1}, minAcc = {-2, -8, -1};
+        MotionProfile1D[] profiles = SynchronizedProfiler1D.generateProfiles(
+                Arrays.asList(elevator, wrist, turret), maxV, maxAcc, minAcc, 2);
+
+        // The elevator is the limiting axis here
+        MotionProfile1D limiting = Profiler1D.generateProfile(elevator, 1, 2, -2, 2);
+        double tEnd = limiting.getTEnd();
+        int segmentCount = profiles[0].getSegmentCount();
+        for (MotionProfile1D profile : profiles) {
+            assertEquals(segmentCount, profile.getSegmentCount());
+            for (int i = 0; i < segmentCount; i++) {
+                assertEquals(profiles[0].tStartAt(i), profile.tStartAt(i), 0);
+                assertEquals(profiles[0].tEndAt(i), profile.tEndAt(i), 0);
+            }
+            assertEquals(2, profile.tStartAt(0), 0);
+            assertEquals(tEnd, profile.getTEnd(), EPSILON);
+        }
+
+        for (double t = 2; t <= tEnd; t += 0.01) {
+            int index = profiles[0].quickGetSegmentIndex(t);
+            assertEquals(limiting.getLocation(t), profiles[0].getLocationAt(index, t), EPSILON);
+            for (int axis = 0; axis < 3; axis++) {
+                assertTrue(Math.abs(profiles[axis].getVelocityAt(index, t)) <= maxV[axis] + EPSILON);
+                assertTrue(Math.abs(profiles[axis].getAccelerationAt(index, t)) <= maxAcc[axis] + EPSILON);
+            }
+            assertEquals(2, profiles[2].getLocationAt(index, t), 0);
+        }
+        assertEquals(0.5, profiles[1].getLocation(tEnd), 1E-6);
+        assertEquals(0, profiles[1].getVelocity(tEnd), 1E-6);
+    }
+
+    @Test
+    void invalidTest() {
+        List<ActuatorLocation> axis = Arrays.asList(new ActuatorLocation(0, 0), new ActuatorLocation(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> SynchronizedProfiler1D.generateProfiles(
+                Arrays.asList(axis, axis), new double[]{1}, new double[]{1}, new double[]{-1}));
+        assertThrows(IllegalArgumentException.class, () -> SynchronizedProfiler1D.generateProfiles(
+                Arrays.asList(axis, Collections.<ActuatorLocation>emptyList()),
+                new double[]{1, 1}, new double[]{1, 1}, new double[]{-1, -1}));
+
+        // Only the limiting axis may pass through a waypoint without stopping
+        List<ActuatorLocation> moving = Arrays.asList(new ActuatorLocation(0, 0), new ActuatorLocation(0.5, 0.5),
+                new ActuatorLocation(1, 0));
+        List<ActuatorLocation> far = Arrays.asList(new ActuatorLocation(0, 0), new ActuatorLocation(3, 0));
+        assertThrows(IllegalArgumentException.class, () -> SynchronizedProfiler1D.generateProfiles(
+                Arrays.asList(moving, far), new double[]{1, 1}, new double[]{1, 1}, new double[]{-1, -1}));
+        SynchronizedProfiler1D.generateProfiles(Arrays.asList(moving, axis),
+                new double[]{1, 1}, new double[]{1, 1}, new double[]{-1, -1});
+    }
+
+}
@@ -0,0 +1,57 @@
+package org.greenblitz.motion.profiling;
+
+import org.greenblitz.motion.base.State;
+import org.greenblitz.motion.interpolation.Dataset;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TabulatedAccelerationInterpolatorTest {
+
+    private static Dataset linearData(double maxAccel, double maxVelocity) {
+        Dataset ret = new Dataset(2);
+        ret.addDatapoint(maxVelocity, new double[]{0});
+        ret.addDatapoint(0, new double[]{maxAccel});
+        ret.addDatapoint(maxVelocity / 2, new double[]{maxAccel / 2});
+        return ret;
+    }
+
+    @Test
+    void lookupTest() {
+        TabulatedAccelerationInterpolator interpolator = new TabulatedAccelerationInterpolator(linearData(2, 3), 100);
+        for (double v = 0; v <= 3; v += 0.01)
+            assertEquals(AccelerationInterpolator.LINEAR.getRealMaxAccel(v, 3, 2),
+                    interpolator.getRealMaxAccel(v, 3, 100), 1E-9);
+        assertEquals(2, interpolator.getRealMaxAccel(-1, 3, 100), 0);
+        assertEquals(0, interpolator.getRealMaxAccel(5, 3, 100), 0);
+        assertEquals(1, interpolator.getRealMaxAccel(0.5, 3, 1), 0);
+        assertNotNull(interpolator.getCacheKey());
+
+        assertThrows(IllegalArgumentException.class, () -> new TabulatedAccelerationInterpolator(new Dataset(3)));
+        assertThrows(IllegalArgumentException.class, () -> new TabulatedAccelerationInterpolator(linearData(2, 3), 1));
+    }
+
+    @Test
+    void profileTest() {
+        List<State> lst = new ArrayList<>();
+        lst.add(new State(0, 0, 0, 0, 0));
+        lst.add(new State(0, 4, 0, 0, 0));
+        ProfilingData linear = new ProfilingData(3, 2, 4, 2);
+        ProfilingData tabulated = new ProfilingData(3, 2, 4, 2, new TabulatedAccelerationInterpolator(linearData(2, 3)));
+
+        // Ending as fast as possible only uses the forwards pass, where both interpolators give the same accelerations
+        MotionProfile2D expected = ChassisProfiler2D.generateProfile(lst, 0.001, 0, Double.POSITIVE_INFINITY,
+                linear, 0, 1.0, 50);
+        MotionProfile2D actual = ChassisProfiler2D.generateProfile(lst, 0.001, 0, Double.POSITIVE_INFINITY,
+                tabulated, 0, 1.0, 50);
+        assertEquals(expected.getTEnd(), actual.getTEnd(), 1E-6);
+        for (double t = 0; t < expected.getTEnd(); t += 0.01)
+            assertEquals(expected.getVelocity(t).getX(), actual.getVelocity(t).getX(), 1E-6);
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.greenblitz.motion.profiling.constraints;
+
+import org.greenblitz.motion.base.Point;
+import org.greenblitz.motion.base.State;
+import org.greenblitz.motion.profiling.ChassisProfiler2D;
+import org.greenblitz.motion.profiling.MotionProfile2D;
+import org.greenblitz.motion.profiling.ProfileCache;
+import org.greenblitz.motion.profiling.ProfilingData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimingConstraintTest {
+
+    private static final ProfilingData DATA = new ProfilingData(3, 2, 4, 2);
+
+    private static List<State> straightPath() {
+        List<State> lst = new ArrayList<>();
+        lst.add(new State(0, 0, 0, 0, 0));
+        lst.add(new State(0, 6, 0, 0, 0));
+        return lst;
+    }
+
+    @Test
+    void noConstraintsTest() {
+        MotionProfile2D expected = ChassisProfiler2D.generateProfile(straightPath(), 0.001, 0, 0, DATA, 0, 1.0, 50);
+        MotionProfile2D actual = ChassisProfiler2D.generateProfile(straightPath(), 0.001, 0, 0, DATA, 0, 1.0, 50,
+                Collections.emptyList());
+        for (double t = 0; t < expected.getTEnd(); t += 0.01)
+            assertEquals(expected.getVelocity(t), actual.getVelocity(t));
+    }
+
+    @Test
+    void fieldRegionTest() {
+        FieldRegionConstraint region = new FieldRegionConstraint(new Point(1, 3), new Point(-1, 2), 0.5);
+        MotionProfile2D free = ChassisProfiler2D.generateProfile(straightPath(), 0.001, 0, 0, DATA, 0, 1.0, 50);
+        MotionProfile2D constrained = ChassisProfiler2D.generateProfile(straightPath(), 0.001, 0, 0, DATA, 0, 1.0, 50,
+                Collections.singletonList(region));
+        assertTrue(constrained.getTEnd() > free.getTEnd());
+
+        double maxVelocity = 0;
+        for (double t = 0; t < constrained.getTEnd(); t += 0.005) {
+            double distance = constrained.getLocation(t).getX();
+            double velocity = constrained.getVelocity(t).getX();
+            if (distance > 2.05 && distance < 2.95)
+                assertTrue(velocity <= 0.5 + 1E-9);
+            maxVelocity = Math.max(maxVelocity, velocity);
+        }
+        assertTrue(maxVelocity > 1.5);
+    }
+
+    @Test
+    void centripetalTest() {
+        CentripetalAccelerationConstraint constraint = new CentripetalAccelerationConstraint(4);
+        assertEquals(Double.POSITIVE_INFINITY, constraint.getMaxVelocity(0, 0, 0, 0));
+        assertEquals(Math.sqrt(2), constraint.getMaxVelocity(0, 0, 0, -2), 1E-9);
+        assertEquals(4, constraint.getMaxAcceleration(0, 0, 0, 2, 0), 1E-9);
+        assertEquals(0, constraint.getMaxAcceleration(0, 0, 0, 2, Math.sqrt(2)), 1E-9);
+        assertEquals(Math.sqrt(12), constraint.getMaxAcceleration(0, 0, 0, 2, 1), 1E-9);
+    }
+
+    @Test
+    void voltageTest() {
+        VoltageConstraint constraint = new VoltageConstraint(1, 2, 0.5, 11, 0.5);
+        assertEquals(5, constraint.getMaxVelocity(0, 0, 0, 0), 1E-9);
+        assertEquals(4, constraint.getMaxVelocity(0, 0, 0, 1), 1E-9);
+        assertEquals(12, constraint.getMaxAcceleration(0, 0, 0, 0, 2), 1E-9);
+        // Decelerating gets the back EMF as extra budget
+        assertTrue(constraint.getMaxAcceleration(0, 0, 0, 0, -2) > constraint.getMaxAcceleration(0, 0, 0, 0, 2));
+        assertEquals(0, constraint.getMaxAcceleration(0, 0, 0, 0, 10), 0);
+    }
+
+    @Test
+    void cacheKeyTest() {
+        TimingConstraint uncacheable = new TimingConstraint() {
+            @Override
+            public double getMaxVelocity(double distance, double x, double y, double curvature) {
+                return 1;
+            }
+
+            @Override
+            public double getMaxAcceleration(double distance, double x, double y, double curvature, double velocity) {
+                return 1;
+            }
+        };
+        assertTrue(ProfileCache.canCache(new CentripetalAccelerationConstraint(3)));
+        assertFalse(ProfileCache.canCache(new CentripetalAccelerationConstraint(3), uncacheable));
+        assertNotEquals(ProfileCache.keyBuilder("test").putConstraints(new CentripetalAccelerationConstraint(3)).build(),
+                ProfileCache.keyBuilder("test").putConstraints(new CentripetalAccelerationConstraint(4)).build());
+    }
+
+}
@@ -0,0 +1,62 @@
+package org.greenblitz.motion.profiling.curve;
+
+import org.greenblitz.motion.base.Point;
+import org.greenblitz.motion.profiling.curve.spline.PolynomialCurve;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArcLengthTableTest {
+
+    private static final double EPSILON = 1E-9;
+
+    @Test
+    void lineTest() {
+        ArcLengthTable table = new ArcLengthTable(new PolynomialCurve(1, new double[]{1, 3}, new double[]{2, 4}));
+        assertEquals(5, table.getLength(), EPSILON);
+        assertEquals(0.3, table.getU(1.5), EPSILON);
+        Point p = table.getLocationAtDistance(2.5);
+        assertEquals(2.5, p.getX(), EPSILON);
+        assertEquals(4, p.getY(), EPSILON);
+        assertEquals(0, table.getU(-1), 0);
+        assertEquals(1, table.getU(6), 0);
+    }
+
+    @Test
+    void inverseTest() {
+        // Speeds up a lot along the curve, so distance and u are far from proportional
+        ICurve curve = new PolynomialCurve(5, new double[]{0, 0.1, 0, 0, 0, 3}, new double[]{0, 0, 1, 0, -2, 0});
+        for (int samples : new int[]{1, 8, 64}) {
+            ArcLengthTable table = new ArcLengthTable(curve, samples);
+            assertEquals(curve.getLength(1), table.getLength(), EPSILON);
+            double previous = 0;
+            for (double s = 0; s <= table.getLength(); s += 0.01) {
+                double u = table.getU(s);
+                assertEquals(s, curve.getLength(u), EPSILON);
+                assertEquals(s, table.getDistance(u), EPSILON);
+                assertTrue(previous <= u);
+                previous = u;
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ArcLengthTable(curve, 0));
+    }
+
+    @Test
+    void speedTest() {
+        PolynomialCurve polynomial = new PolynomialCurve(5, new double[]{0, 0.1, 0, 0, 0, 3}, new double[]{0, 0, 1, 0, -2, 0});
+        BezierCurve bezier = new BezierCurve(new Point(0, 0), new Point(1, 3), new Point(2.5, -1), new Point(4, 2));
+        // The exact speeds match the slope of the length, including on a scaled sub-curve
+        for (ICurve curve : new ICurve[]{polynomial, polynomial.getSubCurve(0.2, 0.7), bezier}) {
+            for (double u = 0.05; u < 1; u += 0.1) {
+                double slope = (curve.getLength(u + 1E-5) - curve.getLength(u - 1E-5)) / 2E-5;
+                assertEquals(slope, curve.getSpeed(u), 1E-5 * slope);
+            }
+            ArcLengthTable table = new ArcLengthTable(curve, 8);
+            for (double s = 0; s <= table.getLength(); s += 0.05)
+                assertEquals(s, curve.getLength(table.getU(s)), EPSILON);
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package org.greenblitz.motion.profiling.curve;
+
+import org.greenblitz.motion.base.Point;
+import org.greenblitz.motion.base.State;
+import org.greenblitz.motion.profiling.curve.spline.QuinticSplineGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BezierCurveTest {
+
+    private static final double EPSILON = 1E-9;
+
+    private static Point[] corners() {
+        return new Point[]{new Point(0, 0), new Point(1, 3), new Point(2.5, -1), new Point(4, 2), new Point(5, 0)};
+    }
+
+    @Test
+    void locationTest() {
+        BezierCurve curve = new BezierCurve(corners());
+        assertEquals(4, curve.getDegree());
+        double[] out = new double[2];
+        for (double u = 0; u <= 1; u += 0.05) {
+            Point expected = Point.bezierSample(u, corners());
+            assertEquals(expected.getX(), curve.getLocation(u).getX(), EPSILON);
+            assertEquals(expected.getY(), curve.getLocation(u).getY(), EPSILON);
+            curve.getLocation(u, out);
+            assertEquals(expected.getX(), out[0], EPSILON);
+            assertEquals(expected.getY(), out[1], EPSILON);
+        }
+        assertEquals(5, curve.getLocation(1).getX(), 0);
+        assertEquals(0, curve.getLocation(1).getY(), 0);
+
+        // A line has no curvature, and it's length is the distance
+        BezierCurve line = new BezierCurve(new Point(1, 1), new Point(4, 5));
+        assertEquals(5, line.getLength(1), EPSILON);
+        assertEquals(2.5, line.getLength(0.5), EPSILON);
+        assertEquals(0, line.getCurvature(0.3), 0);
+        assertEquals(Math.atan2(4, 3), line.getAngle(0.7), EPSILON);
+
+        assertThrows(IllegalArgumentException.class, () -> new BezierCurve(new Point(1, 1)));
+        assertThrows(IllegalArgumentException.class, () -> new BezierCurve(new double[2], new double[3]));
+    }
+
+    @Test
+    void subCurveTest() {
+        BezierCurve curve = new BezierCurve(corners());
+        BezierCurve sub = curve.getSubCurve(0.2, 0.7);
+        for (double u = 0; u <= 1; u += 0.05) {
+            double original = 0.2 + 0.5 * u;
+            assertEquals(curve.getLocation(original).getX(), sub.getLocation(u).getX(), EPSILON);
+            assertEquals(curve.getLocation(original).getY(), sub.getLocation(u).getY(), EPSILON);
+            assertEquals(curve.getCurvature(original), sub.getCurvature(u), 1E-7);
+            assertEquals(curve.getAngle(original), sub.getAngle(u), EPSILON);
+        }
+        assertEquals(curve.getLength(0.7) - curve.getLength(0.2), sub.getLength(1), EPSILON);
+    }
+
+    @Test
+    void cubicTest() {
+        State start = new State(0, 0, 0.3, 1, 0), end = new State(2, 3, -0.4, 1, 0);
+        BezierCurve cubic = BezierCurve.cubic(start, end, 2);
+        ICurve quintic = QuinticSplineGenerator.generateSpline(start, end, 2);
+        for (double u : new double[]{0, 1}) {
+            assertEquals(quintic.getLocation(u).getX(), cubic.getLocation(u).getX(), EPSILON);
+            assertEquals(quintic.getLocation(u).getY(), cubic.getLocation(u).getY(), EPSILON);
+            assertEquals(quintic.getAngle(u), cubic.getAngle(u), EPSILON);
+        }
+    }
+
+}
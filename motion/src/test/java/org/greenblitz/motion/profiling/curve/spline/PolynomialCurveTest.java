@@ -0,0 +1,121 @@
+package org.greenblitz.motion.profiling.curve.spline;
+
+import org.greenblitz.motion.base.Point;
+import org.greenblitz.motion.base.Vector2D;
+import org.greenblitz.motion.profiling.curve.ICurve;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PolynomialCurveTest {
+
+    private static final double EPSILON = 1E-9;
+
+    /**
+     * Sums the distances between many points on the curve
+     */
+    private static double polylineLength(ICurve curve, double u) {
+        double ret = 0;
+        Point prev = curve.getLocation(0);
+        for (int i = 1; i <= 200000; i++) {
+            Point curr = curve.getLocation(u * i / 200000);
+            ret += Point.dist(prev, curr);
+            prev = curr;
+        }
+        return ret;
+    }
+
+    @Test
+    void lengthTest() {
+        // y = x^2, with a length known in closed form
+        ICurve parabola = new PolynomialCurve(2, new double[]{0, 1, 0}, new double[]{0, 0, 1});
+        assertEquals(Math.sqrt(5) / 2 + Math.log(2 + Math.sqrt(5)) / 4, parabola.getLength(1), EPSILON);
+        assertEquals(0, parabola.getLength(0), EPSILON);
+
+        ICurve line = new PolynomialCurve(1, new double[]{1, 3}, new double[]{2, 4});
+        assertEquals(2.5, line.getLength(0.5), EPSILON);
+        assertEquals(-2.5, line.getLength(-0.5), EPSILON);
+    }
+
+    @Test
+    void curvedTest() {
+        // A loop, which is far too curved for the constant curvature approximation this used to use
+        PolynomialCurve curve = new PolynomialCurve(5,
+                new double[]{0, 0, 6, -4, -3, 2}, new double[]{0, 3, -1, 0, 4, -5}, 0, 2, 1);
+        for (double u = 0; u <= 1; u += 0.125)
+            assertEquals(polylineLength(curve, u), curve.getLength(u), 1E-6);
+
+        ICurve first = curve.getSubCurve(0, 0.3);
+        ICurve second = curve.getSubCurve(0.3, 1);
+        assertEquals(curve.getLength(1), first.getLength(1) + second.getLength(1), EPSILON);
+        assertEquals(curve.getLength(0.3), first.getLength(1), EPSILON);
+    }
+
+    @Test
+    void evaluateTest() {
+        PolynomialCurve curve = new PolynomialCurve(5,
+                new double[]{1, 0, 6, -4, -3, 2}, new double[]{-2, 3, -1, 0, 4, -5}, 0.2, 0.9, 1.5);
+        double[] out = new double[6];
+        double[] pair = new double[2];
+        for (double u = 0; u <= 1; u += 0.05) {
+            double inter = curve.clamp(u);
+            curve.evaluate(u, out);
+            Point location = curve.getLocation(u);
+            Vector2D derivative = curve.getDerivativeInter(inter);
+            Vector2D doubleDerivative = curve.getDoubleDerivativeInter(inter);
+            assertEquals(location.getX(), out[0], EPSILON);
+            assertEquals(location.getY(), out[1], EPSILON);
+            assertEquals(derivative.getX(), out[2], EPSILON);
+            assertEquals(derivative.getY(), out[3], EPSILON);
+            assertEquals(doubleDerivative.getX(), out[4], EPSILON);
+            assertEquals(doubleDerivative.getY(), out[5], EPSILON);
+            assertEquals(curve.getCurvature(u), PolynomialCurve.getCurvature(out[2], out[3], out[4], out[5]), EPSILON);
+            assertEquals(Math.atan2(out[3], out[2]), curve.getAngle(u), EPSILON);
+
+            curve.getLocation(u, pair);
+            assertEquals(location.getX(), pair[0], 0);
+            assertEquals(location.getY(), pair[1], 0);
+            curve.getDoubleDerivativeInter(inter, pair);
+            assertEquals(doubleDerivative.getY(), pair[1], 0);
+        }
+        // A circle of radius 2, going counterclockwise at u = 0
+        assertEquals(0.5, PolynomialCurve.getCurvature(0, 2, -2, 0), EPSILON);
+    }
+
+    @Test
+    void subCurveTest() {
+        PolynomialCurve curve = new PolynomialCurve(5,
+                new double[]{1, 0, 6, -4, -3, 2}, new double[]{-2, 3, -1, 0, 4, -5}, 0, 1, 2.5);
+        // Sub-curves of sub-curves are sub-curves of the original
+        ICurve subCurve = curve.getSubCurve(0.1, 0.8);
+        ICurve subSubCurve = subCurve.getSubCurve(0.5, 1);
+        assertEquals(curve.getLength(0.8) - curve.getLength(0.45), subSubCurve.getLength(1), EPSILON);
+        assertEquals(curve.getCurvature(0.45), subSubCurve.getCurvature(0), EPSILON);
+    }
+
+    @Test
+    void batchEvaluateTest() {
+        PolynomialCurve curve = new PolynomialCurve(5,
+                new double[]{1, 0, 6, -4, -3, 2}, new double[]{-2, 3, -1, 0, 4, -5}, 0.2, 0.9, 1.5);
+        // More than one block of points
+        double[] u = new double[1000];
+        for (int i = 0; i < u.length; i++)
+            u[i] = i / 999.0;
+        double[] x = new double[u.length], y = new double[u.length], curvature = new double[u.length];
+        curve.evaluate(u, x, y, curvature);
+
+        double[] out = new double[6];
+        for (int i = 0; i < u.length; i++) {
+            curve.evaluate(u[i], out);
+            assertEquals(out[0], x[i], 0);
+            assertEquals(out[1], y[i], 0);
+            assertEquals(PolynomialCurve.getCurvature(out[2], out[3], out[4], out[5]), curvature[i], 0);
+            assertEquals(curve.getCurvature(u[i]), curvature[i], EPSILON);
+        }
+        curve.evaluate(new double[]{0.5}, x, y, null);
+        assertEquals(curve.getLocation(0.5).getX(), x[0], 0);
+        assertThrows(IndexOutOfBoundsException.class, () -> curve.evaluate(u, new double[10], y, null));
+    }
+
+}
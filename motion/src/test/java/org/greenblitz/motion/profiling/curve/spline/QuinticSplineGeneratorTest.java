@@ -0,0 +1,83 @@
+package org.greenblitz.motion.profiling.curve.spline;
+
+import org.greenblitz.motion.base.Point;
+import org.greenblitz.motion.base.State;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class QuinticSplineGeneratorTest {
+
+    private static final double EPSILON = 1E-9;
+
+    /**
+     * @return the n'th derivative of the polynomial with the given coefficients at t
+     */
+    private static double derivative(double[] coefs, int n, double t) {
+        double ret = 0;
+        for (int i = coefs.length - 1; i >= n; i--) {
+            double factor = 1;
+            for (int j = 0; j < n; j++)
+                factor *= i - j;
+            ret = ret * t + factor * coefs[i];
+        }
+        return ret;
+    }
+
+    @Test
+    void globalSplineTest() {
+        List<State> path = Arrays.asList(new State(0, 0, 0, 1, 0.5), new State(1, 2, 0.5),
+                new State(3, 2.5, 1.7), new State(2, 5, -0.5), new State(4, 7, 0, 2, 1));
+        PolynomialCurve[] splines = QuinticSplineGenerator.generateSplines(path, 0.8);
+        assertEquals(path.size() - 1, splines.length);
+
+        for (int i = 0; i < splines.length; i++) {
+            PolynomialCurve spline = splines[i];
+            assertEquals(0.8 * Point.dist(path.get(i), path.get(i + 1)), spline.tScaling, EPSILON);
+            assertEquals(path.get(i).getX(), spline.getLocation(0).getX(), EPSILON);
+            assertEquals(path.get(i).getY(), spline.getLocation(0).getY(), EPSILON);
+            assertEquals(path.get(i + 1).getX(), spline.getLocation(1).getX(), EPSILON);
+            assertEquals(path.get(i + 1).getY(), spline.getLocation(1).getY(), EPSILON);
+            assertEquals(Math.sin(path.get(i).getAngle()), derivative(spline.x, 1, 0), EPSILON);
+            assertEquals(Math.cos(path.get(i).getAngle()), derivative(spline.y, 1, 0), EPSILON);
+            assertEquals(Math.sin(path.get(i + 1).getAngle()), derivative(spline.x, 1, spline.tScaling), EPSILON);
+            assertEquals(Math.cos(path.get(i + 1).getAngle()), derivative(spline.y, 1, spline.tScaling), EPSILON);
+        }
+
+        // Continuous up to the third derivative at the middle waypoints
+        for (int i = 0; i < splines.length - 1; i++) {
+            PolynomialCurve before = splines[i], after = splines[i + 1];
+            for (int n = 1; n <= 3; n++) {
+                assertEquals(derivative(before.x, n, before.tScaling), derivative(after.x, n, 0), 1E-7);
+                assertEquals(derivative(before.y, n, before.tScaling), derivative(after.y, n, 0), 1E-7);
+            }
+            assertEquals(before.getCurvature(1), after.getCurvature(0), 1E-7);
+        }
+
+        // The ends are the same as the pairwise splines'
+        PolynomialCurve first = QuinticSplineGenerator.generateSpline(path.get(0), path.get(1), splines[0].tScaling);
+        assertEquals(first.getCurvature(0), splines[0].getCurvature(0), EPSILON);
+        PolynomialCurve last = QuinticSplineGenerator.generateSpline(path.get(3), path.get(4), splines[3].tScaling);
+        assertEquals(last.getCurvature(1), splines[3].getCurvature(1), EPSILON);
+    }
+
+    @Test
+    void twoWaypointsTest() {
+        State start = new State(0, 0, 0.3, 1, 0.5), end = new State(2, 3, -0.2, 1, -1);
+        PolynomialCurve global = QuinticSplineGenerator.generateSplines(Arrays.asList(start, end), 1.5)[0];
+        PolynomialCurve pairwise = QuinticSplineGenerator.generateSpline(start, end, 1.5 * Point.dist(start, end));
+        assertArrayEquals(pairwise.x, global.x, 0);
+        assertArrayEquals(pairwise.y, global.y, 0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> QuinticSplineGenerator.generateSplines(Arrays.asList(start), 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> QuinticSplineGenerator.generateSplines(Arrays.asList(start, end, end), 1));
+    }
+
+}